@@ -0,0 +1,125 @@
+package com.codesync.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import com.codesync.collaboration.LiveDocumentStore;
+import com.codesync.websocket.CollaborationWebSocketHandler;
+
+/**
+ * One inbound message from a collaborator, from {@code handleMessage} until
+ * every frame it causes has been handed to its recipients' sessions.
+ *
+ * <ul>
+ * <li>{@code code_change}: a delta against the live document, transformed,
+ * broadcast to the other sessions and acknowledged to the sender.</li>
+ * <li>{@code cursor_position}: coalesced and sent to everyone with the next
+ * presence flush, which the benchmark triggers right away.</li>
+ * <li>{@code chat_message}: relayed byte for byte to the other sessions.</li>
+ * </ul>
+ *
+ * Throughput is messages per second through a single sender; sample time gives
+ * the fan-out latency percentiles. Run with {@code -prof gc} for the bytes
+ * allocated per message ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final String FILE_ID = "bench-file";
+    private static final int DOCUMENT_LENGTH = 1024;
+
+    @Param({"2", "10", "50", "200"})
+    public int sessions;
+
+    @Param({"code_change", "cursor_position", "chat_message"})
+    public String messageType;
+
+    private CollaborationHarness harness;
+    private CollaborationWebSocketHandler handler;
+    private StubWebSocketSession sender;
+    private long expectedFrames;
+    private long revision;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new CollaborationHarness(sessions);
+        handler = harness.handler();
+        sender = harness.session(0);
+
+        // Give the document a body so deltas are applied to real text
+        handler.handleMessage(sender, new TextMessage("{\"type\":\"code_change\",\"fileId\":\"" + FILE_ID
+                + "\",\"content\":\"" + "a".repeat(DOCUMENT_LENGTH) + "\"}"));
+        harness.settle();
+        revision = harness.bean(LiveDocumentStore.class).get(FILE_ID).getRevision();
+
+        // Count the frames one message causes, so each invocation knows what to wait for
+        long before = harness.delivered();
+        send();
+        harness.settle();
+        expectedFrames = harness.delivered() - before;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput() throws Exception {
+        broadcast();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() throws Exception {
+        broadcast();
+    }
+
+    private void broadcast() throws Exception {
+        long target = harness.delivered() + expectedFrames;
+        send();
+        harness.awaitDelivered(target);
+    }
+
+    private void send() throws Exception {
+        long n = sequence++;
+        switch (messageType) {
+            case "code_change" -> {
+                // Alternately insert and remove one character at the start, keeping the length stable
+                String operation = n % 2 == 0 ? "[\"x\"," + DOCUMENT_LENGTH + "]" : "[-1," + DOCUMENT_LENGTH + "]";
+                handler.handleMessage(sender, new TextMessage("{\"type\":\"code_change\",\"fileId\":\"" + FILE_ID
+                        + "\",\"revision\":" + revision++ + ",\"operation\":" + operation + "}"));
+            }
+            case "cursor_position" -> {
+                handler.handleMessage(sender, new TextMessage("{\"type\":\"cursor_position\",\"fileId\":\"" + FILE_ID
+                        + "\",\"line\":" + (n % 500) + ",\"column\":" + (n % 80) + "}"));
+                handler.flushPresence();
+            }
+            case "chat_message" -> handler.handleMessage(sender, new TextMessage(
+                    "{\"type\":\"chat_message\",\"projectId\":\"" + CollaborationHarness.PROJECT_ID
+                            + "\",\"content\":\"Message " + n + " from the benchmark\",\"timestamp\":" + n + "}"));
+            default -> throw new IllegalArgumentException("Unknown message type: " + messageType);
+        }
+    }
+}
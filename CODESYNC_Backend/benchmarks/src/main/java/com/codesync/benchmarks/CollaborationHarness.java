@@ -0,0 +1,176 @@
+package com.codesync.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.socket.CloseStatus;
+
+import com.codesync.collaboration.LiveDocumentStore;
+import com.codesync.repository.ProjectFileRepository;
+import com.codesync.websocket.BroadcastScheduler;
+import com.codesync.websocket.CollaborationWebSocketHandler;
+import com.codesync.websocket.PresenceAggregator;
+import com.codesync.websocket.ProjectEventLog;
+import com.codesync.websocket.ProjectRoster;
+import com.codesync.websocket.ResumeRegistry;
+import com.codesync.websocket.relay.InProcessCollaborationRelay;
+import com.codesync.websocket.relay.ProjectAffinity;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The collaboration handler wired the way the application wires it, with the
+ * database and the network replaced by stubs, and one project full of
+ * connected sessions.
+ *
+ * Settings keep their application defaults, read from the same
+ * {@code @Value} placeholders; system properties override them, e.g.
+ * {@code -Dapp.collaboration.broadcast.lanes=4}.
+ */
+class CollaborationHarness implements AutoCloseable {
+
+    static final String PROJECT_ID = "1";
+
+    private static final long DELIVERY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AnnotationConfigApplicationContext context;
+    private final CollaborationWebSocketHandler handler;
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<StubWebSocketSession> sessions = new ArrayList<>();
+    private long nextSessionId;
+
+    CollaborationHarness(int sessionCount) throws Exception {
+        context = new AnnotationConfigApplicationContext(HandlerConfiguration.class);
+        handler = context.getBean(CollaborationWebSocketHandler.class);
+        for (int i = 0; i < sessionCount; i++) {
+            StubWebSocketSession session = newSession("user-" + i);
+            handler.afterConnectionEstablished(session);
+            sessions.add(session);
+        }
+        settle();
+    }
+
+    CollaborationWebSocketHandler handler() {
+        return handler;
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    StubWebSocketSession session(int index) {
+        return sessions.get(index);
+    }
+
+    StubWebSocketSession newSession(String userId) {
+        return new StubWebSocketSession("bench-" + nextSessionId++, PROJECT_ID, userId, delivered);
+    }
+
+    long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Spin until at least {@code target} frames in total have been handed to sessions.
+     */
+    void awaitDelivered(long target) {
+        long deadline = System.nanoTime() + DELIVERY_TIMEOUT_NANOS;
+        while (delivered.get() < target) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Only " + delivered.get() + " of " + target + " frames delivered");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Wait until no more frames arrive, e.g. the users lists sent after joining.
+     */
+    void settle() throws InterruptedException {
+        long last;
+        do {
+            last = delivered.get();
+            Thread.sleep(100);
+        } while (delivered.get() != last);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (StubWebSocketSession session : sessions) {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+        context.close();
+    }
+
+    @Configuration
+    @Import({LiveDocumentStore.class, BroadcastScheduler.class, PresenceAggregator.class, ProjectRoster.class,
+            ProjectEventLog.class, ResumeRegistry.class, InProcessCollaborationRelay.class, ProjectAffinity.class,
+            CollaborationWebSocketHandler.class})
+    static class HandlerConfiguration {
+
+        // Converts the comma-separated cluster node list
+        @Bean
+        static ConversionService conversionService() {
+            return new DefaultConversionService();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ThreadPoolTaskScheduler taskScheduler() {
+            ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+            scheduler.setThreadNamePrefix("bench-scheduler-");
+            return scheduler;
+        }
+
+        // Benchmark files have non-numeric ids, so they are never loaded or written back
+        @Bean
+        ProjectFileRepository projectFileRepository() {
+            return (ProjectFileRepository) Proxy.newProxyInstance(ProjectFileRepository.class.getClassLoader(),
+                    new Class<?>[] {ProjectFileRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "findById" -> Optional.empty();
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "StubProjectFileRepository";
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new PlatformTransactionManager() {
+                @Override
+                public TransactionStatus getTransaction(TransactionDefinition definition) {
+                    return new SimpleTransactionStatus();
+                }
+
+                @Override
+                public void commit(TransactionStatus status) {
+                }
+
+                @Override
+                public void rollback(TransactionStatus status) {
+                }
+            };
+        }
+    }
+}
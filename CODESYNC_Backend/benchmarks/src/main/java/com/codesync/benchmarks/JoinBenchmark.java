@@ -0,0 +1,80 @@
+package com.codesync.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.CloseStatus;
+
+import com.codesync.websocket.CollaborationWebSocketHandler;
+
+/**
+ * A new user joining a project that already has {@code sessions} connected,
+ * until the joiner has its users list and everyone else the
+ * {@code user_joined} frame, then leaving again so the project stays the same
+ * size. Leaving costs about as much as joining, so the join alone is roughly
+ * half of the reported time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+
+    @Param({"2", "10", "50", "200"})
+    public int sessions;
+
+    private CollaborationHarness harness;
+    private CollaborationWebSocketHandler handler;
+    private long joinFrames;
+    private long leaveFrames;
+    private long nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new CollaborationHarness(sessions);
+        handler = harness.handler();
+
+        // Count the frames of one join and one leave, so each invocation knows what to wait for
+        StubWebSocketSession joiner = harness.newSession("joiner-" + nextUser++);
+        long before = harness.delivered();
+        handler.afterConnectionEstablished(joiner);
+        harness.settle();
+        joinFrames = harness.delivered() - before;
+
+        before = harness.delivered();
+        handler.afterConnectionClosed(joiner, CloseStatus.NORMAL);
+        harness.settle();
+        leaveFrames = harness.delivered() - before;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    public void joinAndLeave() throws Exception {
+        StubWebSocketSession joiner = harness.newSession("joiner-" + nextUser++);
+        long target = harness.delivered() + joinFrames;
+        handler.afterConnectionEstablished(joiner);
+        harness.awaitDelivered(target);
+
+        target += leaveFrames;
+        handler.afterConnectionClosed(joiner, CloseStatus.NORMAL);
+        harness.awaitDelivered(target);
+    }
+}
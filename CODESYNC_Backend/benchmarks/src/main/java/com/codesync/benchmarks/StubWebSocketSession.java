@@ -0,0 +1,129 @@
+package com.codesync.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.codesync.entity.UserProjectPermission;
+import com.codesync.websocket.CollaborationWebSocketHandler;
+import com.codesync.websocket.SessionContext;
+
+/**
+ * In-memory session that accepts every frame immediately, so a benchmark
+ * measures the handler and its queues rather than a network.
+ *
+ * Every frame written to any session of a harness bumps the shared
+ * {@code delivered} counter, which is how benchmarks wait for a fan-out to
+ * reach all recipients.
+ */
+class StubWebSocketSession implements WebSocketSession {
+
+    private final String id;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final AtomicLong delivered;
+    private volatile boolean open = true;
+    // Read by nobody; keeps the payload size from being optimized away
+    private volatile long receivedBytes;
+
+    StubWebSocketSession(String id, String projectId, String userId, AtomicLong delivered) {
+        this.id = id;
+        this.delivered = delivered;
+        attributes.put(SessionContext.ATTRIBUTE, new SessionContext(projectId, userId, "Benchmark " + userId,
+                UserProjectPermission.Permission.WRITE));
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return null;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return CollaborationWebSocketHandler.JSON_SUB_PROTOCOL;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        receivedBytes += message.getPayloadLength();
+        delivered.incrementAndGet();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
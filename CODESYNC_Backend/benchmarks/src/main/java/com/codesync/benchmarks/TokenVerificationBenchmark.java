@@ -0,0 +1,104 @@
+package com.codesync.benchmarks;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import com.codesync.entity.User;
+import com.codesync.security.JwtTokenProvider;
+import com.codesync.security.TokenRevocationIndex;
+import com.codesync.security.UserPrincipal;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * What {@code JwtAuthenticationFilter} does with the bearer token of every API
+ * request: verify it, check it against the revocation index and build the
+ * principal from its claims.
+ *
+ * {@code verifiedCacheSize=0} disables the verified-token cache, so every call
+ * pays for the HMAC check; {@code revokedTokens} fills the revocation index
+ * to show that the lookup does not grow with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TokenVerificationBenchmark {
+
+    @Param({"10000", "0"})
+    public int verifiedCacheSize;
+
+    @Param({"0", "100000"})
+    public int revokedTokens;
+
+    private AnnotationConfigApplicationContext context;
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "app.jwt.secret", "benchmarkSecretKey1234567890123456789012345",
+                "app.jwt.expiration", "900000",
+                "app.jwt.verified-cache-size", String.valueOf(verifiedCacheSize))));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(TokenRevocationIndex.class, JwtTokenProvider.class);
+        context.refresh();
+        tokenProvider = context.getBean(JwtTokenProvider.class);
+
+        TokenRevocationIndex revocationIndex = context.getBean(TokenRevocationIndex.class);
+        Date expiration = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < revokedTokens; i++) {
+            revocationIndex.revoke(UUID.randomUUID().toString(), expiration);
+        }
+
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setEmail("benchmark@codesync.local");
+        token = tokenProvider.generateToken(user);
+        if (tokenProvider.parseClaims(token) == null) {
+            throw new IllegalStateException("Benchmark token does not verify");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return tokenProvider.parseClaims(token);
+    }
+
+    @Benchmark
+    public UserPrincipal authenticate() {
+        return UserPrincipal.fromClaims(tokenProvider.parseClaims(token));
+    }
+}
@@ -0,0 +1,79 @@
+package com.codesync.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.codesync.entity.Project;
+import com.codesync.entity.ProjectFile;
+import com.codesync.entity.Role;
+import com.codesync.entity.User;
+import com.codesync.entity.UserProjectPermission;
+import com.codesync.repository.ProjectFileRepository;
+import com.codesync.repository.ProjectRepository;
+import com.codesync.repository.RoleRepository;
+import com.codesync.repository.UserProjectPermissionRepository;
+import com.codesync.repository.UserRepository;
+import com.codesync.security.JwtTokenProvider;
+
+/**
+ * Users, projects and files for the synthetic editors, written straight to the
+ * repositories, with access tokens minted by the application's own provider.
+ */
+final class LoadTestFixtures {
+
+    static final String INITIAL_CONTENT = "// Load test file\n";
+
+    private LoadTestFixtures() {
+    }
+
+    static List<EditorIdentity> create(ApplicationContext context, LoadTestOptions options) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        ProjectRepository projectRepository = context.getBean(ProjectRepository.class);
+        ProjectFileRepository fileRepository = context.getBean(ProjectFileRepository.class);
+        UserProjectPermissionRepository permissionRepository = context.getBean(UserProjectPermissionRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        JwtTokenProvider tokenProvider = context.getBean(JwtTokenProvider.class);
+
+        List<Project> projects = new ArrayList<>();
+        for (int p = 0; p < options.projects(); p++) {
+            projects.add(new Project("Load test " + p, "Synthetic editors"));
+        }
+        projects = projectRepository.saveAll(projects);
+
+        List<ProjectFile> files = new ArrayList<>();
+        for (Project project : projects) {
+            files.add(new ProjectFile("Main.java", "/Main.java", INITIAL_CONTENT, "java", project));
+        }
+        files = fileRepository.saveAll(files);
+
+        // Nobody logs in with it, so one hash is enough
+        String password = context.getBean(PasswordEncoder.class).encode(UUID.randomUUID().toString());
+        Role writeRole = roleRepository.findByName(Role.RoleName.WRITE).orElse(null);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < options.clients(); i++) {
+            User user = new User("loadtest-" + i, "loadtest-" + i + "@codesync.local", password, "Load Test " + i);
+            user.setRole(writeRole);
+            users.add(user);
+        }
+        users = userRepository.saveAll(users);
+
+        List<UserProjectPermission> permissions = new ArrayList<>();
+        List<EditorIdentity> identities = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            int p = i % projects.size();
+            permissions.add(new UserProjectPermission(user, projects.get(p), UserProjectPermission.Permission.WRITE));
+            identities.add(new EditorIdentity(projects.get(p).getId().toString(), files.get(p).getId().toString(),
+                    user.getId().toString(), tokenProvider.generateToken(user)));
+        }
+        permissionRepository.saveAll(permissions);
+        return identities;
+    }
+
+    record EditorIdentity(String projectId, String fileId, String userId, String token) {
+    }
+}
@@ -0,0 +1,255 @@
+package com.codesync.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * What the synthetic editors observed, plus samples of the server's own meters.
+ *
+ * Latencies are end to end, from the sending editor handing the frame to its
+ * socket until a receiving editor has parsed it, recorded in microseconds.
+ * Editors and server share one JVM, so both use the same {@code nanoTime} clock
+ * and the CPU figure covers the editors' work too.
+ */
+final class LoadTestMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestMetrics.class);
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    enum Kind {
+        CODE_CHANGE("code_change"),
+        CURSOR_POSITION("cursor_position"),
+        CHAT_MESSAGE("chat_message");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    private final long origin = System.nanoTime();
+    private final MeterRegistry meterRegistry;
+    private final Map<Kind, KindStats> stats = new EnumMap<>(Kind.class);
+    // projectId -> editors that have joined and not left
+    private final Map<String, AtomicInteger> projectEditors = new ConcurrentHashMap<>();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder connectRetries = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder unexpectedCloses = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder skippedSends = new LongAdder();
+
+    // Frames sent before this, on the now() clock, are not timed
+    private volatile long measuringSince;
+
+    // Measurement window, guarded by this
+    private long windowStart;
+    private double serverDroppedAtStart;
+    private double serverTerminatedAtStart;
+    private double cpuSum;
+    private double cpuMax;
+    private int cpuSamples;
+    private double heapMax;
+
+    LoadTestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Kind kind : Kind.values()) {
+            stats.put(kind, new KindStats());
+        }
+    }
+
+    /**
+     * Clock shared by all editors; frames carry their send time relative to it.
+     */
+    long now() {
+        return System.nanoTime() - origin;
+    }
+
+    void recordLatency(Kind kind, long sentAt) {
+        if (sentAt < measuringSince) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(now() - sentAt);
+        stats.get(kind).recorder.recordValue(Math.max(0, Math.min(micros, HIGHEST_LATENCY_MICROS)));
+        stats.get(kind).received.increment();
+    }
+
+    /**
+     * Count a frame sent by an editor of the project, which every other editor there should receive.
+     */
+    void sent(Kind kind, String projectId) {
+        KindStats kindStats = stats.get(kind);
+        kindStats.sent.increment();
+        kindStats.expected.add(Math.max(0, editors(projectId) - 1));
+    }
+
+    void joined(String projectId) {
+        joined.increment();
+        projectEditors.computeIfAbsent(projectId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    void left(String projectId) {
+        projectEditors.computeIfAbsent(projectId, id -> new AtomicInteger()).decrementAndGet();
+    }
+
+    long joinedCount() {
+        return joined.sum();
+    }
+
+    void connectRetried() {
+        connectRetries.increment();
+    }
+
+    void connectFailed() {
+        connectFailures.increment();
+    }
+
+    void closedUnexpectedly() {
+        unexpectedCloses.increment();
+    }
+
+    void resynced() {
+        resyncs.increment();
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    void sendSkipped() {
+        skippedSends.increment();
+    }
+
+    /**
+     * Forget everything recorded so far, e.g. while editors were still connecting.
+     */
+    synchronized void startMeasurement() {
+        for (KindStats kindStats : stats.values()) {
+            kindStats.recorder.getIntervalHistogram();
+            kindStats.total.reset();
+            kindStats.sent.reset();
+            kindStats.expected.reset();
+            kindStats.received.reset();
+        }
+        resyncs.reset();
+        errors.reset();
+        skippedSends.reset();
+        unexpectedCloses.reset();
+        windowStart = System.nanoTime();
+        measuringSince = now();
+        serverDroppedAtStart = counter("codesync.websocket.outbound.dropped");
+        serverTerminatedAtStart = counter("codesync.websocket.outbound.terminated");
+        cpuSum = 0;
+        cpuMax = 0;
+        cpuSamples = 0;
+        heapMax = 0;
+    }
+
+    /**
+     * Sample server CPU and heap; called about once a second.
+     */
+    synchronized void sampleServer() {
+        double cpu = gauge("process.cpu.usage");
+        if (!Double.isNaN(cpu)) {
+            cpuSum += cpu;
+            cpuMax = Math.max(cpuMax, cpu);
+            cpuSamples++;
+        }
+        double heap = 0;
+        for (Gauge gauge : meterRegistry.find("jvm.memory.used").tag("area", "heap").gauges()) {
+            heap += gauge.value();
+        }
+        heapMax = Math.max(heapMax, heap);
+    }
+
+    /**
+     * Log the latencies recorded since the previous report and fold them into the totals.
+     */
+    synchronized void reportInterval() {
+        StringBuilder line = new StringBuilder("Interval:");
+        for (Kind kind : Kind.values()) {
+            KindStats kindStats = stats.get(kind);
+            Histogram interval = kindStats.recorder.getIntervalHistogram();
+            kindStats.total.add(interval);
+            line.append(String.format(" %s n=%d p50=%.2fms p99=%.2fms max=%.2fms;", kind.label,
+                    interval.getTotalCount(), millis(interval.getValueAtPercentile(50)),
+                    millis(interval.getValueAtPercentile(99)), millis(interval.getMaxValue())));
+        }
+        line.append(String.format(" cpu=%.0f%% heapMax=%dMB", gauge("process.cpu.usage") * 100, (long) (heapMax / (1 << 20))));
+        log.info(line.toString());
+    }
+
+    synchronized void reportSummary(LoadTestOptions options) {
+        reportInterval();
+        double seconds = (System.nanoTime() - windowStart) / 1e9;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%nLoad test summary: %d editors in %d projects, %.0fs measured%n",
+                joinedCount(), options.projects(), seconds));
+        summary.append(String.format("%-16s %10s %10s %9s %9s %9s %9s %9s %9s %9s%n", "type", "sent", "received",
+                "delivered", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "msg/s"));
+        for (Kind kind : Kind.values()) {
+            KindStats kindStats = stats.get(kind);
+            Histogram total = kindStats.total;
+            long expected = kindStats.expected.sum();
+            // Cursor moves are coalesced by the server, so there is no fixed number to expect
+            String delivered = kind == Kind.CURSOR_POSITION || expected == 0 ? "-"
+                    : String.format("%.2f%%", 100.0 * kindStats.received.sum() / expected);
+            summary.append(String.format("%-16s %10d %10d %9s %9.2f %9.2f %9.2f %9.2f %9.2f %9.0f%n", kind.label,
+                    kindStats.sent.sum(), kindStats.received.sum(), delivered,
+                    millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(90)),
+                    millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)),
+                    millis(total.getMaxValue()), kindStats.received.sum() / seconds));
+        }
+        summary.append(String.format("Server: dropped frames %.0f, terminated sessions %.0f, cpu avg %.0f%% max %.0f%%, heap max %dMB%n",
+                counter("codesync.websocket.outbound.dropped") - serverDroppedAtStart,
+                counter("codesync.websocket.outbound.terminated") - serverTerminatedAtStart,
+                cpuSamples > 0 ? cpuSum / cpuSamples * 100 : Double.NaN, cpuMax * 100, (long) (heapMax / (1 << 20))));
+        summary.append(String.format("Editors: connect retries %d, connect failures %d, unexpected closes %d, resyncs %d, errors %d, skipped sends %d",
+                connectRetries.sum(), connectFailures.sum(), unexpectedCloses.sum(), resyncs.sum(), errors.sum(),
+                skippedSends.sum()));
+        log.info(summary.toString());
+    }
+
+    private int editors(String projectId) {
+        AtomicInteger count = projectEditors.get(projectId);
+        return count != null ? count.get() : 0;
+    }
+
+    private double gauge(String name) {
+        Gauge gauge = meterRegistry.find(name).gauge();
+        return gauge != null ? gauge.value() : Double.NaN;
+    }
+
+    private double counter(String name) {
+        Counter counter = meterRegistry.find(name).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class KindStats {
+        private final Recorder recorder = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+        private final Histogram total = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder expected = new LongAdder();
+        private final LongAdder received = new LongAdder();
+    }
+}
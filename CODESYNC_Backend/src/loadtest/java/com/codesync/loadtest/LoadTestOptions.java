@@ -0,0 +1,34 @@
+package com.codesync.loadtest;
+
+import java.time.Duration;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Shape of a load test run, read from {@code loadtest.*} properties so they can
+ * be passed like any other application argument, e.g.
+ * {@code --loadtest.clients=2000 --loadtest.typing-rate=8}.
+ *
+ * Rates are per editor per second. Editors are spread evenly over the projects
+ * and connect at {@code ramp-rate} per second; latencies recorded while
+ * editors are still connecting are left out of the results.
+ */
+record LoadTestOptions(int clients, int projects, Duration duration, double rampRate, double typingRate,
+                       double cursorRate, double chatRate, Duration reportInterval) {
+
+    static LoadTestOptions from(Environment environment) {
+        LoadTestOptions options = new LoadTestOptions(
+                environment.getProperty("loadtest.clients", Integer.class, 200),
+                environment.getProperty("loadtest.projects", Integer.class, 10),
+                environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(60)),
+                environment.getProperty("loadtest.ramp-rate", Double.class, 40.0),
+                environment.getProperty("loadtest.typing-rate", Double.class, 4.0),
+                environment.getProperty("loadtest.cursor-rate", Double.class, 2.0),
+                environment.getProperty("loadtest.chat-rate", Double.class, 0.05),
+                environment.getProperty("loadtest.report-interval", Duration.class, Duration.ofSeconds(10)));
+        if (options.clients() <= 0 || options.projects() <= 0 || options.rampRate() <= 0) {
+            throw new IllegalArgumentException("loadtest.clients, loadtest.projects and loadtest.ramp-rate must be positive");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,136 @@
+package com.codesync.loadtest;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.codesync.CodeSyncApplication;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * End-to-end load test: starts the application against an in-memory database,
+ * connects synthetic editors to {@code /ws/collaboration/{projectId}} and
+ * reports message latency percentiles, delivery and server CPU and heap.
+ *
+ * <pre>
+ * mvn -P loadtest test-compile exec:java -Dexec.args="--loadtest.clients=2000 --loadtest.duration=2m"
+ * </pre>
+ *
+ * See {@link LoadTestOptions} for the settings. Other arguments go to the
+ * application, e.g. {@code --app.collaboration.broadcast.lanes=8}.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would restart the application in another class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CodeSyncApplication.class)
+                .profiles("loadtest")
+                .run(args);
+        try {
+            run(context, LoadTestOptions.from(context.getEnvironment()));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, LoadTestOptions options) throws Exception {
+        String baseUri = "ws://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port");
+        LoadTestMetrics metrics = new LoadTestMetrics(context.getBean(MeterRegistry.class));
+        List<SyntheticEditor> editors = new ArrayList<>();
+        for (LoadTestFixtures.EditorIdentity identity : LoadTestFixtures.create(context, options)) {
+            editors.add(new SyntheticEditor(identity, metrics));
+        }
+        log.info("Created {} editors in {} projects, connecting at {}/s", editors.size(), options.projects(),
+                options.rampRate());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2), task -> {
+                    Thread thread = new Thread(task, "loadtest-editor-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            // Connect at the ramp rate; each editor starts its activity right away
+            long connectIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rampRate());
+            for (int i = 0; i < editors.size(); i++) {
+                SyntheticEditor editor = editors.get(i);
+                scheduler.schedule(() -> {
+                    editor.connect(client, baseUri, scheduler);
+                    startActivity(scheduler, editor, options);
+                }, i * connectIntervalNanos, TimeUnit.NANOSECONDS);
+            }
+            scheduler.scheduleAtFixedRate(metrics::sampleServer, 1, 1, TimeUnit.SECONDS);
+
+            awaitJoined(metrics, editors.size(), (long) (editors.size() / options.rampRate()) + 30);
+            metrics.startMeasurement();
+            log.info("Measuring for {}", options.duration());
+
+            long end = System.nanoTime() + options.duration().toNanos();
+            long reportNanos = options.reportInterval().toNanos();
+            while (System.nanoTime() < end) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(reportNanos, end - System.nanoTime()));
+                if (System.nanoTime() < end) {
+                    metrics.reportInterval();
+                }
+            }
+            metrics.reportSummary(options);
+        } finally {
+            scheduler.shutdownNow();
+            editors.forEach(SyntheticEditor::close);
+            // Let the close frames go out before the server stops
+            Thread.sleep(1000);
+        }
+    }
+
+    private static void startActivity(ScheduledExecutorService scheduler, SyntheticEditor editor, LoadTestOptions options) {
+        schedule(scheduler, editor::type, options.typingRate());
+        schedule(scheduler, editor::moveCursor, options.cursorRate());
+        schedule(scheduler, editor::chat, options.chatRate());
+    }
+
+    private static void schedule(ScheduledExecutorService scheduler, Runnable action, double perSecond) {
+        if (perSecond <= 0) {
+            return;
+        }
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        // Random phase so editors do not act in lockstep
+        scheduler.scheduleAtFixedRate(action, ThreadLocalRandom.current().nextLong(periodNanos), periodNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    private static void awaitJoined(LoadTestMetrics metrics, int expected, long timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        long lastLog = System.nanoTime();
+        while (metrics.joinedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            if (System.nanoTime() - lastLog > TimeUnit.SECONDS.toNanos(5)) {
+                log.info("{} of {} editors joined", metrics.joinedCount(), expected);
+                lastLog = System.nanoTime();
+            }
+        }
+        if (metrics.joinedCount() < expected) {
+            log.warn("Only {} of {} editors joined, measuring anyway", metrics.joinedCount(), expected);
+        } else {
+            log.info("All {} editors joined", expected);
+        }
+    }
+}
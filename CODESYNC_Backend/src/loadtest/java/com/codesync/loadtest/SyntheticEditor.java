@@ -0,0 +1,299 @@
+package com.codesync.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codesync.loadtest.LoadTestFixtures.EditorIdentity;
+import com.codesync.loadtest.LoadTestMetrics.Kind;
+import com.codesync.websocket.CollaborationWebSocketHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One simulated collaborator: a WebSocket client that types into its project's
+ * file, moves its cursor and chats at the configured rates, and times every
+ * frame it receives from the other editors.
+ *
+ * Typing sends real operations against the last revision this editor has seen,
+ * so the server transforms and applies them like a browser's. Inserts carry
+ * their send time as {@code <base36>}, cursor moves in {@code timestamp} and
+ * chat messages in {@code sentAt}.
+ */
+final class SyntheticEditor implements WebSocket.Listener {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_PENDING_SENDS = 256;
+    private static final int MAX_CONNECT_ATTEMPTS = 20;
+
+    private final EditorIdentity identity;
+    private final LoadTestMetrics metrics;
+    private final StringBuilder partial = new StringBuilder();
+    private final AtomicInteger pendingSends = new AtomicInteger();
+    private volatile WebSocket webSocket;
+    private volatile boolean joined;
+    private volatile boolean closing;
+
+    // Document as last seen from the server, and sizes of our inserts awaiting their ack; guarded by this
+    private long revision;
+    private int length = LoadTestFixtures.INITIAL_CONTENT.length();
+    private final Deque<Integer> unacknowledged = new ArrayDeque<>();
+    private CompletableFuture<Void> sendChain = CompletableFuture.completedFuture(null);
+    private long sequence;
+
+    SyntheticEditor(EditorIdentity identity, LoadTestMetrics metrics) {
+        this.identity = identity;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Open the connection, retrying while the server's admission control turns it away.
+     */
+    void connect(HttpClient client, String baseUri, ScheduledExecutorService scheduler) {
+        connect(client, URI.create(baseUri + "/ws/collaboration/" + identity.projectId() + "?token=" + identity.token()),
+                scheduler, 1);
+    }
+
+    private void connect(HttpClient client, URI uri, ScheduledExecutorService scheduler, int attempt) {
+        client.newWebSocketBuilder()
+                .subprotocols(CollaborationWebSocketHandler.JSON_SUB_PROTOCOL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, this)
+                .whenComplete((socket, failure) -> {
+                    if (failure == null) {
+                        return;
+                    }
+                    if (failure.getCause() instanceof WebSocketHandshakeException handshake
+                            && handshake.getResponse().statusCode() == 503 && attempt < MAX_CONNECT_ATTEMPTS) {
+                        metrics.connectRetried();
+                        long retryAfter = handshake.getResponse().headers().firstValueAsLong("Retry-After").orElse(1);
+                        scheduler.schedule(() -> connect(client, uri, scheduler, attempt + 1), retryAfter, TimeUnit.SECONDS);
+                    } else {
+                        metrics.connectFailed();
+                    }
+                });
+    }
+
+    boolean isJoined() {
+        return joined;
+    }
+
+    void type() {
+        if (!joined) {
+            return;
+        }
+        synchronized (this) {
+            String marker = "<" + Long.toString(metrics.now(), 36) + ">";
+            int position = ThreadLocalRandom.current().nextInt(length + 1);
+            StringBuilder operation = new StringBuilder("[");
+            if (position > 0) {
+                operation.append(position).append(',');
+            }
+            operation.append('"').append(marker).append('"');
+            if (length > position) {
+                operation.append(',').append(length - position);
+            }
+            operation.append(']');
+            if (send("{\"type\":\"code_change\",\"fileId\":\"" + identity.fileId() + "\",\"revision\":" + revision
+                    + ",\"operation\":" + operation + "}")) {
+                unacknowledged.addLast(marker.length());
+                metrics.sent(Kind.CODE_CHANGE, identity.projectId());
+            }
+        }
+    }
+
+    void moveCursor() {
+        if (!joined) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (send("{\"type\":\"cursor_position\",\"fileId\":\"" + identity.fileId() + "\",\"line\":" + random.nextInt(500)
+                + ",\"column\":" + random.nextInt(80) + ",\"timestamp\":" + metrics.now() + "}")) {
+            metrics.sent(Kind.CURSOR_POSITION, identity.projectId());
+        }
+    }
+
+    void chat() {
+        if (!joined) {
+            return;
+        }
+        long n;
+        synchronized (this) {
+            n = sequence++;
+        }
+        if (send("{\"type\":\"chat_message\",\"projectId\":\"" + identity.projectId() + "\",\"content\":\"Message " + n
+                + " from load test editor " + identity.userId() + "\",\"sentAt\":" + metrics.now() + "}")) {
+            metrics.sent(Kind.CHAT_MESSAGE, identity.projectId());
+        }
+    }
+
+    void close() {
+        closing = true;
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            synchronized (this) {
+                sendChain = sendChain.thenCompose(ignored -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "Load test finished"))
+                        .handle((ignored, failure) -> null);
+            }
+        }
+        if (joined) {
+            joined = false;
+            metrics.left(identity.projectId());
+        }
+    }
+
+    // The JDK client allows one outstanding send per socket, so sends are chained
+    private boolean send(String text) {
+        WebSocket socket = webSocket;
+        if (socket == null || pendingSends.get() >= MAX_PENDING_SENDS) {
+            metrics.sendSkipped();
+            return false;
+        }
+        pendingSends.incrementAndGet();
+        synchronized (this) {
+            sendChain = sendChain.thenCompose(ignored -> socket.sendText(text, true))
+                    .handle((ignored, failure) -> {
+                        pendingSends.decrementAndGet();
+                        if (failure != null && !closing) {
+                            metrics.error();
+                        }
+                        return null;
+                    });
+        }
+        return true;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        this.webSocket = webSocket;
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String frame = partial.toString();
+            partial.setLength(0);
+            try {
+                handle(objectMapper.readTree(frame));
+            } catch (Exception e) {
+                metrics.error();
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (!closing) {
+            metrics.closedUnexpectedly();
+            if (joined) {
+                joined = false;
+                metrics.left(identity.projectId());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        if (!closing) {
+            metrics.error();
+        }
+    }
+
+    private void handle(JsonNode frame) {
+        switch (frame.path("type").asText()) {
+            case "users_list" -> {
+                if (!joined) {
+                    joined = true;
+                    metrics.joined(identity.projectId());
+                }
+            }
+            case "code_change" -> onCodeChange(frame);
+            case "code_change_ack" -> onAck(frame.path("revision").asLong());
+            case "resync_required" -> onResync(frame);
+            case "presence_update" -> {
+                for (JsonNode user : frame.path("users")) {
+                    if (!identity.userId().equals(user.path("userId").asText()) && user.has("line")
+                            && user.path("timestamp").isNumber()) {
+                        metrics.recordLatency(Kind.CURSOR_POSITION, user.path("timestamp").asLong());
+                    }
+                }
+            }
+            case "chat_message" -> {
+                if (frame.path("sentAt").isNumber()) {
+                    metrics.recordLatency(Kind.CHAT_MESSAGE, frame.path("sentAt").asLong());
+                }
+            }
+            case "permission_denied" -> metrics.error();
+            default -> {
+                // Joins, leaves and other notifications carry nothing to time
+            }
+        }
+    }
+
+    // A delta describes the whole document: retains plus inserts are its length at that revision
+    private void onCodeChange(JsonNode frame) {
+        int newLength = 0;
+        for (JsonNode component : frame.path("operation")) {
+            if (component.isTextual()) {
+                String text = component.asText();
+                newLength += text.length();
+                recordInsert(text);
+            } else if (component.asInt() > 0) {
+                newLength += component.asInt();
+            }
+        }
+        long newRevision = frame.path("revision").asLong();
+        synchronized (this) {
+            if (newRevision > revision) {
+                revision = newRevision;
+                length = newLength;
+            }
+        }
+    }
+
+    private void recordInsert(String text) {
+        int start = text.indexOf('<');
+        int end = text.indexOf('>', start + 1);
+        if (start >= 0 && end > start) {
+            try {
+                metrics.recordLatency(Kind.CODE_CHANGE, Long.parseLong(text.substring(start + 1, end), 36));
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+    }
+
+    private synchronized void onAck(long ackedRevision) {
+        Integer inserted = unacknowledged.pollFirst();
+        // Only follow the ack if nothing we have not seen was applied before our insert
+        if (inserted != null && ackedRevision == revision + 1) {
+            revision = ackedRevision;
+            length += inserted;
+        }
+    }
+
+    private void onResync(JsonNode frame) {
+        metrics.resynced();
+        synchronized (this) {
+            // Sent instead of the ack of our oldest operation
+            unacknowledged.pollFirst();
+            revision = frame.path("revision").asLong();
+            length = frame.path("content").asText().length();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.codesync.collaboration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Server-side state of one file being edited collaboratively: the revision
+ * counter, a bounded history of applied operations used to transform late
+ * arrivals, and the authoritative text once it is known.
+ */
+public class CollaborativeDocument {
+
+    private final String projectId;
+    private final String fileId;
+    private final int historyLimit;
+    private final Deque<TextOperation> history = new ArrayDeque<>();
+
+    private long revision;
+    private PieceTable buffer;
+    private long persistedRevision;
+    // Content hash at versionRevision, computed on demand
+    private long versionRevision = -1;
+    private String version;
+
+    public CollaborativeDocument(String projectId, String fileId, int historyLimit) {
+        this.projectId = projectId;
+        this.fileId = fileId;
+        this.historyLimit = historyLimit;
+    }
+
+    /**
+     * Transform an operation made against {@code baseRevision} over everything applied since,
+     * apply it and return it in the form other clients should apply.
+     */
+    public synchronized AppliedOperation apply(long baseRevision, TextOperation operation) {
+        long oldestRevision = revision - history.size();
+        if (baseRevision > revision || baseRevision < oldestRevision) {
+            throw new StaleRevisionException(fileId, baseRevision, revision);
+        }
+
+        TextOperation transformed = operation;
+        Iterator<TextOperation> concurrent = history.iterator();
+        for (long skip = baseRevision - oldestRevision; skip > 0; skip--) {
+            concurrent.next();
+        }
+        while (concurrent.hasNext()) {
+            // The already-applied operation keeps its position on ties
+            transformed = TextOperation.transform(concurrent.next(), transformed)[1];
+        }
+
+        if (buffer != null) {
+            buffer.apply(transformed);
+        }
+
+        history.addLast(transformed);
+        if (history.size() > historyLimit) {
+            history.removeFirst();
+        }
+        revision++;
+        return new AppliedOperation(revision, transformed);
+    }
+
+    /**
+     * Replace the whole text, e.g. when a client falls back to sending full content.
+     * Operations based on earlier revisions can no longer be transformed and must resync.
+     */
+    public synchronized long reset(String newContent) {
+        if (buffer == null) {
+            buffer = new PieceTable(newContent);
+        } else {
+            buffer.reset(newContent);
+        }
+        history.clear();
+        revision++;
+        return revision;
+    }
+
+    /**
+     * Seed the text loaded from the database; it counts as already persisted.
+     */
+    public synchronized void load(String persistedContent) {
+        if (buffer == null) {
+            buffer = new PieceTable(persistedContent);
+            persistedRevision = revision;
+        }
+    }
+
+    public synchronized boolean isDirty() {
+        return buffer != null && revision > persistedRevision;
+    }
+
+    /**
+     * Capture the text and revision that a write-behind flush is about to persist.
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(revision, buffer != null ? buffer.toString() : null);
+    }
+
+    public synchronized void markPersisted(long flushedRevision) {
+        persistedRevision = Math.max(persistedRevision, flushedRevision);
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public synchronized String getContent() {
+        return buffer != null ? buffer.toString() : null;
+    }
+
+    /**
+     * {@link ContentVersion} of the current text, or null before it is loaded.
+     */
+    public synchronized String getVersion() {
+        if (buffer == null) {
+            return null;
+        }
+        if (versionRevision != revision) {
+            version = ContentVersion.of(buffer.toString());
+            versionRevision = revision;
+        }
+        return version;
+    }
+
+    public synchronized boolean isLoaded() {
+        return buffer != null;
+    }
+
+    public record AppliedOperation(long revision, TextOperation operation) {
+    }
+
+    public record Snapshot(long revision, String content) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.codesync.collaboration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters shared by every way file content gets saved, tagged with the path it took.
+ */
+public final class FileMetrics {
+
+    /** REST save of a file nobody has open, written to the database right away. */
+    public static final String PATH_DIRECT = "direct";
+    /** REST save of an open file, applied to its live document. */
+    public static final String PATH_LIVE = "live";
+    /** Write-behind batch of dirty live documents. */
+    public static final String PATH_FLUSH = "flush";
+
+    private FileMetrics() {
+    }
+
+    public static Timer saveTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("codesync.files.save.latency")
+                .description("Time to save file content; a flush saves a batch of files in one transaction")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    public static DistributionSummary saveSize(MeterRegistry meterRegistry, String path) {
+        return DistributionSummary.builder("codesync.files.save.size")
+                .description("Length of saved file content")
+                .baseUnit("characters")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,47 @@
+package com.codesync.collaboration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Recent contents of files by version, kept so that a save based on an older
+ * version can be merged with what is there now. Only saved versions are recorded,
+ * so plain reads do not push out the bases that merges need.
+ */
+@Component
+public class FileVersionHistory {
+
+    private final Cache<String, String> contents;
+
+    public FileVersionHistory(@Value("${app.files.version-history.max-chars:16000000}") long maxChars) {
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(maxChars)
+                .weigher((String key, String content) -> content.length())
+                .build();
+    }
+
+    public void record(Long fileId, String version, String content) {
+        if (version != null && content != null) {
+            contents.put(key(fileId, version), content);
+        }
+    }
+
+    /**
+     * Content of {@code fileId} at {@code version}, or null when it is no longer known.
+     */
+    public String get(Long fileId, String version) {
+        return version != null ? contents.getIfPresent(key(fileId, version)) : null;
+    }
+
+    public void discard(Long fileId) {
+        String prefix = fileId + ":";
+        contents.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static String key(Long fileId, String version) {
+        return fileId + ":" + version;
+    }
+}
@@ -0,0 +1,257 @@
+package com.codesync.collaboration;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codesync.entity.ProjectFile;
+import com.codesync.repository.ProjectFileRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Authoritative in-memory copy of every file that is being edited on this node.
+ * Collaborative edits are applied here and dirty documents are written back to
+ * the database in batches, so typing never waits on Postgres.
+ */
+@Component
+public class LiveDocumentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveDocumentStore.class);
+
+    private final Map<Long, CollaborativeDocument> documents = new ConcurrentHashMap<>();
+    // Flushes from the scheduler and from releaseProject must not overtake each other
+    private final Object flushLock = new Object();
+    // Its own thread, so a slow database neither waits on nor delays the shared scheduler's presence ticks
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "document-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ProjectFileRepository fileRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final DistributionSummary flushedSize;
+    private volatile ResetListener resetListener;
+
+    @Value("${app.collaboration.history-limit:500}")
+    private int historyLimit;
+
+    @Value("${app.collaboration.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    public LiveDocumentStore(ProjectFileRepository fileRepository, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.fileRepository = fileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushTimer = FileMetrics.saveTimer(meterRegistry, FileMetrics.PATH_FLUSH);
+        this.flushedSize = FileMetrics.saveSize(meterRegistry, FileMetrics.PATH_FLUSH);
+    }
+
+    /**
+     * The live document of a file in {@code projectId}, loading it on first use.
+     * Returns null when the file does not exist, belongs to another project or its
+     * id is not a number, in which case nothing is created and the caller must
+     * refuse the edit.
+     */
+    public CollaborativeDocument getOrCreate(String projectId, String fileId) {
+        Long id = parseId(fileId);
+        Long project = parseId(projectId);
+        if (id == null || project == null) {
+            return null;
+        }
+        CollaborativeDocument document = documents.get(id);
+        if (document != null) {
+            return document.getProjectId().equals(project.toString()) ? document : null;
+        }
+
+        // Load outside the map so a slow query does not block other files
+        ProjectFile file = fileRepository.findByIdAndProjectId(id, project).orElse(null);
+        if (file == null) {
+            return null;
+        }
+        CollaborativeDocument created = new CollaborativeDocument(project.toString(), id.toString(), historyLimit);
+        created.load(file.getContent() != null ? file.getContent() : "");
+        CollaborativeDocument existing = documents.putIfAbsent(id, created);
+        if (existing == null) {
+            return created;
+        }
+        return existing.getProjectId().equals(created.getProjectId()) ? existing : null;
+    }
+
+    public CollaborativeDocument get(Long fileId) {
+        return documents.get(fileId);
+    }
+
+    /**
+     * Be told when a live document is replaced from outside a collaboration session,
+     * so its editors can be sent the new text.
+     */
+    public void setResetListener(ResetListener listener) {
+        this.resetListener = listener;
+    }
+
+    /**
+     * Rewrite the text of a live document with {@code update}, e.g. from a REST save,
+     * if it is still at {@code expectedVersion} (any version when null). Nothing else is
+     * applied to the document in between. Returns null when the file is not open, so
+     * the caller should write it directly.
+     */
+    public LiveUpdate updateContent(Long fileId, String expectedVersion, UnaryOperator<String> update) {
+        CollaborativeDocument document = documents.get(fileId);
+        if (document == null) {
+            return null;
+        }
+        synchronized (document) {
+            if (!document.isLoaded()) {
+                return null;
+            }
+            String current = document.getContent();
+            if (expectedVersion != null && !expectedVersion.equals(document.getVersion())) {
+                return new LiveUpdate(false, current, document.getVersion());
+            }
+            String updated = update.apply(current);
+            if (!updated.equals(current)) {
+                long revision = document.reset(updated);
+                // Still under the document's lock, so resets are announced in revision order
+                ResetListener listener = resetListener;
+                if (listener != null) {
+                    listener.onReset(document, updated, revision);
+                }
+            }
+            return new LiveUpdate(true, updated, document.getVersion());
+        }
+    }
+
+    /**
+     * Forget a document without persisting it, e.g. after the file was deleted.
+     */
+    public void discard(Long fileId) {
+        documents.remove(fileId);
+    }
+
+    @PostConstruct
+    void startFlushing() {
+        flushScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flushDirtyDocuments();
+            } catch (RuntimeException e) {
+                // An exception would cancel every later flush
+                log.error("Error in scheduled flush of live documents", e);
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void flushDirtyDocuments() {
+        flush(new ArrayList<>(documents.values()));
+    }
+
+    /**
+     * Persist and drop the documents of a project once its last session has left.
+     */
+    public void releaseProject(String projectId) {
+        List<CollaborativeDocument> projectDocuments = new ArrayList<>();
+        for (CollaborativeDocument document : documents.values()) {
+            if (document.getProjectId().equals(projectId)) {
+                projectDocuments.add(document);
+            }
+        }
+        flush(projectDocuments);
+        for (CollaborativeDocument document : projectDocuments) {
+            // Keep anything that failed to flush so the next tick can retry it
+            Long id = Long.valueOf(document.getFileId());
+            documents.remove(id, document);
+            if (document.isDirty()) {
+                documents.putIfAbsent(id, document);
+            }
+        }
+        log.debug("Released live documents for project: {}", projectId);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushScheduler.shutdown();
+        flushDirtyDocuments();
+    }
+
+    private void flush(List<CollaborativeDocument> candidates) {
+        // Otherwise an older snapshot could be written after a newer one and still count as persisted
+        synchronized (flushLock) {
+            flushLocked(candidates);
+        }
+    }
+
+    private void flushLocked(List<CollaborativeDocument> candidates) {
+        List<CollaborativeDocument> dirty = new ArrayList<>();
+        List<CollaborativeDocument.Snapshot> snapshots = new ArrayList<>();
+        for (CollaborativeDocument document : candidates) {
+            if (document.isDirty()) {
+                dirty.add(document);
+                snapshots.add(document.snapshot());
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<String> versions = new ArrayList<>();
+        for (CollaborativeDocument.Snapshot snapshot : snapshots) {
+            versions.add(ContentVersion.of(snapshot.content()));
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < dirty.size(); i++) {
+                    fileRepository.updateContent(Long.valueOf(dirty.get(i).getFileId()), snapshots.get(i).content(),
+                            versions.get(i), now);
+                }
+            });
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).markPersisted(snapshots.get(i).revision());
+                flushedSize.record(snapshots.get(i).content().length());
+            }
+            log.debug("Flushed {} live documents", dirty.size());
+        } catch (Exception e) {
+            log.error("Error flushing {} live documents", dirty.size(), e);
+        }
+    }
+
+    private Long parseId(String id) {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public interface ResetListener {
+
+        void onReset(CollaborativeDocument document, String content, long revision);
+    }
+
+    /**
+     * Outcome of {@link #updateContent}: whether it was applied, and the document's text and version after it.
+     */
+    public record LiveUpdate(boolean applied, String content, String version) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.codesync.collaboration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text buffer that records edits as pieces over an immutable original and an
+ * append-only add buffer, so typing never copies the whole document.
+ * The buffer is collapsed back into a single piece once it gets fragmented.
+ */
+public class PieceTable {
+
+    private static final int MAX_PIECES = 1024;
+
+    private String original;
+    private StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+    private int length;
+    private String snapshot;
+
+    public PieceTable(String text) {
+        reset(text);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void insert(int position, String text) {
+        if (position < 0 || position > length) {
+            throw new IndexOutOfBoundsException("Insert position " + position + " outside document of length " + length);
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        Piece piece = new Piece(true, added.length(), text.length());
+        added.append(text);
+
+        int index = splitAt(position);
+        pieces.add(index, piece);
+        length += text.length();
+        changed();
+    }
+
+    public void delete(int position, int count) {
+        if (position < 0 || count < 0 || position + count > length) {
+            throw new IndexOutOfBoundsException("Delete range " + position + "+" + count + " outside document of length " + length);
+        }
+        if (count == 0) {
+            return;
+        }
+        int from = splitAt(position);
+        int to = splitAt(position + count);
+        pieces.subList(from, to).clear();
+        length -= count;
+        changed();
+    }
+
+    /**
+     * Apply an operation whose base length matches this buffer.
+     */
+    public void apply(TextOperation operation) {
+        if (operation.getBaseLength() != length) {
+            throw new IllegalArgumentException("Operation base length " + operation.getBaseLength()
+                    + " does not match document length " + length);
+        }
+        int position = 0;
+        for (Object op : operation.getOps()) {
+            if (op instanceof String text) {
+                insert(position, text);
+                position += text.length();
+            } else if ((Integer) op > 0) {
+                position += (Integer) op;
+            } else {
+                delete(position, -(Integer) op);
+            }
+        }
+    }
+
+    public void reset(String text) {
+        original = text != null ? text : "";
+        added = new StringBuilder();
+        pieces.clear();
+        if (!original.isEmpty()) {
+            pieces.add(new Piece(false, 0, original.length()));
+        }
+        length = original.length();
+        snapshot = original;
+    }
+
+    @Override
+    public String toString() {
+        if (snapshot == null) {
+            StringBuilder text = new StringBuilder(length);
+            for (Piece piece : pieces) {
+                CharSequence source = piece.added() ? added : original;
+                text.append(source, piece.start(), piece.start() + piece.length());
+            }
+            snapshot = text.toString();
+        }
+        return snapshot;
+    }
+
+    // Returns the index of the piece starting at the given offset, splitting a piece if needed
+    private int splitAt(int offset) {
+        int pieceStart = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            if (offset == pieceStart) {
+                return i;
+            }
+            int pieceEnd = pieceStart + piece.length();
+            if (offset < pieceEnd) {
+                int head = offset - pieceStart;
+                pieces.set(i, new Piece(piece.added(), piece.start(), head));
+                pieces.add(i + 1, new Piece(piece.added(), piece.start() + head, piece.length() - head));
+                return i + 1;
+            }
+            pieceStart = pieceEnd;
+        }
+        return pieces.size();
+    }
+
+    private void changed() {
+        snapshot = null;
+        if (pieces.size() > MAX_PIECES) {
+            reset(toString());
+        }
+    }
+
+    private record Piece(boolean added, int start, int length) {
+    }
+}
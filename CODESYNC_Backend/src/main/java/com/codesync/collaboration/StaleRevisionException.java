@@ -0,0 +1,19 @@
+package com.codesync.collaboration;
+
+/**
+ * Thrown when a client's operation is based on a revision the server can no
+ * longer transform against, so the client has to resync the document.
+ */
+public class StaleRevisionException extends RuntimeException {
+
+    private final long currentRevision;
+
+    public StaleRevisionException(String fileId, long baseRevision, long currentRevision) {
+        super("Revision " + baseRevision + " of file " + fileId + " is not transformable (current: " + currentRevision + ")");
+        this.currentRevision = currentRevision;
+    }
+
+    public long getCurrentRevision() {
+        return currentRevision;
+    }
+}
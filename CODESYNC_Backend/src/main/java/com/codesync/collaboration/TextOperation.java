@@ -0,0 +1,230 @@
+package com.codesync.collaboration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A character-range delta over a document, expressed as a sequence of
+ * retain / insert / delete components that together span the whole base text.
+ *
+ * On the wire an operation is a JSON array where a positive number retains
+ * that many characters, a negative number deletes that many characters and a
+ * string inserts that text, e.g. {@code [5, "abc", -3, 10]}.
+ */
+public class TextOperation {
+
+    private final List<Object> ops = new ArrayList<>();
+    private int baseLength;
+    private int targetLength;
+
+    public TextOperation retain(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Retain count must be positive");
+        }
+        if (n == 0) {
+            return this;
+        }
+        baseLength += n;
+        targetLength += n;
+        int last = ops.size() - 1;
+        if (last >= 0 && isRetain(ops.get(last))) {
+            ops.set(last, (Integer) ops.get(last) + n);
+        } else {
+            ops.add(n);
+        }
+        return this;
+    }
+
+    public TextOperation insert(String text) {
+        if (text == null || text.isEmpty()) {
+            return this;
+        }
+        targetLength += text.length();
+        int last = ops.size() - 1;
+        if (last >= 0 && isInsert(ops.get(last))) {
+            ops.set(last, ops.get(last) + text);
+        } else if (last >= 0 && isDelete(ops.get(last))) {
+            // Keep inserts in front of deletes so equivalent operations have one canonical form
+            if (last > 0 && isInsert(ops.get(last - 1))) {
+                ops.set(last - 1, ops.get(last - 1) + text);
+            } else {
+                ops.add(last, text);
+            }
+        } else {
+            ops.add(text);
+        }
+        return this;
+    }
+
+    public TextOperation delete(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Delete count must be positive");
+        }
+        if (n == 0) {
+            return this;
+        }
+        baseLength += n;
+        int last = ops.size() - 1;
+        if (last >= 0 && isDelete(ops.get(last))) {
+            ops.set(last, (Integer) ops.get(last) - n);
+        } else {
+            ops.add(-n);
+        }
+        return this;
+    }
+
+    public int getBaseLength() {
+        return baseLength;
+    }
+
+    public int getTargetLength() {
+        return targetLength;
+    }
+
+    public boolean isNoop() {
+        return ops.isEmpty() || (ops.size() == 1 && isRetain(ops.get(0)));
+    }
+
+    public List<Object> getOps() {
+        return Collections.unmodifiableList(ops);
+    }
+
+    public String apply(String text) {
+        if (text.length() != baseLength) {
+            throw new IllegalArgumentException("Operation base length " + baseLength
+                    + " does not match document length " + text.length());
+        }
+        StringBuilder result = new StringBuilder(targetLength);
+        int index = 0;
+        for (Object op : ops) {
+            if (isRetain(op)) {
+                int n = (Integer) op;
+                result.append(text, index, index + n);
+                index += n;
+            } else if (isInsert(op)) {
+                result.append((String) op);
+            } else {
+                index -= (Integer) op;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Transform two operations that were made against the same document state.
+     * Returns {@code [a', b']} such that {@code apply(apply(s, a), b') == apply(apply(s, b), a')}.
+     * Inserts in {@code a} win position ties, so callers pass the already-applied operation as {@code a}
+     * when they want it to stay to the left.
+     */
+    public static TextOperation[] transform(TextOperation a, TextOperation b) {
+        if (a.baseLength != b.baseLength) {
+            throw new IllegalArgumentException("Both operations must have the same base length");
+        }
+
+        TextOperation aPrime = new TextOperation();
+        TextOperation bPrime = new TextOperation();
+        List<Object> opsA = a.ops;
+        List<Object> opsB = b.ops;
+        int i = 0;
+        int j = 0;
+        Object opA = i < opsA.size() ? opsA.get(i++) : null;
+        Object opB = j < opsB.size() ? opsB.get(j++) : null;
+
+        while (opA != null || opB != null) {
+            if (isInsert(opA)) {
+                aPrime.insert((String) opA);
+                bPrime.retain(((String) opA).length());
+                opA = i < opsA.size() ? opsA.get(i++) : null;
+                continue;
+            }
+            if (isInsert(opB)) {
+                aPrime.retain(((String) opB).length());
+                bPrime.insert((String) opB);
+                opB = j < opsB.size() ? opsB.get(j++) : null;
+                continue;
+            }
+            if (opA == null || opB == null) {
+                throw new IllegalArgumentException("Operations do not span the same document");
+            }
+
+            int lenA = Math.abs((Integer) opA);
+            int lenB = Math.abs((Integer) opB);
+            int min = Math.min(lenA, lenB);
+
+            if (isRetain(opA) && isRetain(opB)) {
+                aPrime.retain(min);
+                bPrime.retain(min);
+            } else if (isDelete(opA) && isDelete(opB)) {
+                // Both sides deleted the same range, nothing left to do for it
+            } else if (isDelete(opA)) {
+                aPrime.delete(min);
+            } else {
+                bPrime.delete(min);
+            }
+
+            if (lenA > min) {
+                opA = shorten(opA, min);
+            } else {
+                opA = i < opsA.size() ? opsA.get(i++) : null;
+            }
+            if (lenB > min) {
+                opB = shorten(opB, min);
+            } else {
+                opB = j < opsB.size() ? opsB.get(j++) : null;
+            }
+        }
+
+        return new TextOperation[] { aPrime, bPrime };
+    }
+
+    private static Object shorten(Object op, int consumed) {
+        int n = (Integer) op;
+        return n > 0 ? n - consumed : n + consumed;
+    }
+
+    /**
+     * Build an operation from its JSON array form.
+     */
+    public static TextOperation fromJson(List<?> components) {
+        TextOperation operation = new TextOperation();
+        for (Object component : components) {
+            if (component instanceof String text) {
+                operation.insert(text);
+            } else if (component instanceof Number number) {
+                int n = number.intValue();
+                if (n > 0) {
+                    operation.retain(n);
+                } else if (n < 0) {
+                    operation.delete(-n);
+                } else {
+                    throw new IllegalArgumentException("Zero-length operation component");
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid operation component: " + component);
+            }
+        }
+        return operation;
+    }
+
+    public List<Object> toJson() {
+        return new ArrayList<>(ops);
+    }
+
+    private static boolean isRetain(Object op) {
+        return op instanceof Integer && (Integer) op > 0;
+    }
+
+    private static boolean isInsert(Object op) {
+        return op instanceof String;
+    }
+
+    private static boolean isDelete(Object op) {
+        return op instanceof Integer && (Integer) op < 0;
+    }
+
+    @Override
+    public String toString() {
+        return ops.toString();
+    }
+}
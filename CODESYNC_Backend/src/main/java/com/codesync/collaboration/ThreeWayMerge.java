@@ -0,0 +1,188 @@
+package com.codesync.collaboration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-based three-way merge of two edits of a common base, in the style of diff3.
+ * Changes on one side only are taken as they are; overlapping changes are kept
+ * between conflict markers for the user to resolve.
+ */
+public final class ThreeWayMerge {
+
+    public static final String MARKER_YOURS = "<<<<<<< yours";
+    public static final String MARKER_SEPARATOR = "=======";
+    public static final String MARKER_CURRENT = ">>>>>>> current";
+
+    // Lines compared after trimming the common prefix and suffix; beyond that no candidate is offered
+    private static final long MAX_COMPARISONS = 4_000_000;
+
+    private ThreeWayMerge() {
+    }
+
+    /**
+     * Merge {@code yours} and {@code current}, both edited from {@code base}.
+     * Returns null when the differing regions are too large to compare.
+     */
+    public static Result merge(String base, String yours, String current) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> baseLines = splitLines(base);
+        List<String> yourLines = splitLines(yours);
+        List<String> currentLines = splitLines(current);
+        int[] baseIds = intern(baseLines, ids);
+        int[] yourIds = intern(yourLines, ids);
+        int[] currentIds = intern(currentLines, ids);
+
+        int[] yoursMatch = match(baseIds, yourIds);
+        int[] currentMatch = match(baseIds, currentIds);
+        if (yoursMatch == null || currentMatch == null) {
+            return null;
+        }
+
+        StringBuilder merged = new StringBuilder(Math.max(yours.length(), current.length()));
+        int conflicts = 0;
+        int b = 0;
+        int y = 0;
+        int c = 0;
+        while (b < baseIds.length || y < yourIds.length || c < currentIds.length) {
+            // Stable run: the base line is kept at the same place on both sides
+            if (b < baseIds.length && yoursMatch[b] == y && currentMatch[b] == c) {
+                merged.append(baseLines.get(b));
+                b++;
+                y++;
+                c++;
+                continue;
+            }
+
+            // Unstable chunk up to the next base line both sides kept
+            int nextB = b;
+            while (nextB < baseIds.length && (yoursMatch[nextB] < 0 || currentMatch[nextB] < 0)) {
+                nextB++;
+            }
+            int nextY = nextB < baseIds.length ? yoursMatch[nextB] : yourIds.length;
+            int nextC = nextB < baseIds.length ? currentMatch[nextB] : currentIds.length;
+
+            boolean yoursUnchanged = sameLines(baseIds, b, nextB, yourIds, y, nextY);
+            boolean currentUnchanged = sameLines(baseIds, b, nextB, currentIds, c, nextC);
+            if (yoursUnchanged) {
+                append(merged, currentLines, c, nextC);
+            } else if (currentUnchanged || sameLines(yourIds, y, nextY, currentIds, c, nextC)) {
+                append(merged, yourLines, y, nextY);
+            } else {
+                conflicts++;
+                appendMarker(merged, MARKER_YOURS);
+                append(merged, yourLines, y, nextY);
+                appendMarker(merged, MARKER_SEPARATOR);
+                append(merged, currentLines, c, nextC);
+                appendMarker(merged, MARKER_CURRENT);
+            }
+            b = nextB;
+            y = nextY;
+            c = nextC;
+        }
+        return new Result(merged.toString(), conflicts);
+    }
+
+    /**
+     * For every base line, the index of the line it is matched to in {@code other}
+     * by a longest common subsequence, or -1 when it was removed.
+     */
+    private static int[] match(int[] base, int[] other) {
+        int[] matched = new int[base.length];
+        Arrays.fill(matched, -1);
+
+        int prefix = 0;
+        while (prefix < base.length && prefix < other.length && base[prefix] == other[prefix]) {
+            matched[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < base.length - prefix && suffix < other.length - prefix
+                && base[base.length - 1 - suffix] == other[other.length - 1 - suffix]) {
+            matched[base.length - 1 - suffix] = other.length - 1 - suffix;
+            suffix++;
+        }
+
+        int n = base.length - prefix - suffix;
+        int m = other.length - prefix - suffix;
+        if (n == 0 || m == 0) {
+            return matched;
+        }
+        if ((long) n * m > MAX_COMPARISONS) {
+            return null;
+        }
+
+        // lengths[i][j]: LCS length of base[prefix + i..] and other[prefix + j..]
+        int[][] lengths = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lengths[i][j] = base[prefix + i] == other[prefix + j]
+                        ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (base[prefix + i] == other[prefix + j]) {
+                matched[prefix + i] = prefix + j;
+                i++;
+                j++;
+            } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return matched;
+    }
+
+    private static boolean sameLines(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        return Arrays.equals(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+    private static void append(StringBuilder merged, List<String> lines, int from, int to) {
+        for (int i = from; i < to; i++) {
+            merged.append(lines.get(i));
+        }
+    }
+
+    private static void appendMarker(StringBuilder merged, String marker) {
+        if (merged.length() > 0 && merged.charAt(merged.length() - 1) != '\n') {
+            merged.append('\n');
+        }
+        merged.append(marker).append('\n');
+    }
+
+    private static int[] intern(List<String> lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(lines.get(i), line -> ids.size());
+        }
+        return result;
+    }
+
+    /**
+     * Split into lines that keep their terminators, so joining them restores the text exactly.
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    public record Result(String content, int conflicts) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.codesync.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches for the lookups every request repeats: users by email and a user's
+ * permission on a project. Caches and their bounds are configured under
+ * {@code spring.cache.*}; the repositories evict entries on writes, and their
+ * hit and miss counts are published as {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -1,10 +1,15 @@
 package com.codesync.config;
 
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import com.codesync.collaboration.ContentVersion;
 import com.codesync.entity.Project;
 import com.codesync.entity.ProjectFile;
 import com.codesync.entity.Role;
@@ -19,6 +24,8 @@ import com.codesync.repository.UserRepository;
 @Component
 public class DataInitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -44,17 +51,34 @@ public class DataInitializer implements CommandLineRunner {
         
         // Initialize sample data only if database is empty
         initializeSampleData();
+
+        // Files saved before content hashes were stored need one for conditional saves
+        backfillContentHashes();
+    }
+
+    private void backfillContentHashes() {
+        int count = 0;
+        List<ProjectFile> files;
+        while (!(files = projectFileRepository.findTop100ByContentHashIsNull()).isEmpty()) {
+            for (ProjectFile file : files) {
+                projectFileRepository.updateContentHash(file.getId(), ContentVersion.of(file.getContent()));
+            }
+            count += files.size();
+        }
+        if (count > 0) {
+            log.info("Computed content hashes for {} files", count);
+        }
     }
 
     private void initializeRoles() {
-        System.out.println("Initializing roles...");
+        log.info("Initializing roles...");
         
         // Create default roles if they don't exist
         for (Role.RoleName roleName : Role.RoleName.values()) {
             if (!roleRepository.existsByName(roleName)) {
                 Role role = new Role(roleName);
                 roleRepository.save(role);
-                System.out.println("Created role: " + roleName.getDisplayName());
+                log.info("Created role: {}", roleName.getDisplayName());
             }
         }
         
@@ -66,21 +90,21 @@ public class DataInitializer implements CommandLineRunner {
             if (user.getRole() == null) {
                 user.setRole(writeRole);
                 userRepository.save(user);
-                System.out.println("Assigned WRITE role to existing user: " + user.getUsername());
+                log.info("Assigned WRITE role to existing user: {}", user.getUsername());
             }
         });
         
-        System.out.println("Roles initialization completed.");
+        log.info("Roles initialization completed.");
     }
 
     private void initializeSampleData() {
         // Check if data already exists
         if (userRepository.count() > 0) {
-            System.out.println("Database already contains data, skipping initialization");
+            log.info("Database already contains data, skipping initialization");
             return;
         }
 
-        System.out.println("Initializing sample data...");
+        log.info("Initializing sample data...");
 
         // Create sample users with email as username and assign roles
         User adminUser = createUser("admin@codesync.com", "admin@codesync.com", "Admin User", "password123", Role.RoleName.ADMIN);
@@ -105,11 +129,11 @@ public class DataInitializer implements CommandLineRunner {
         createSampleFile(sampleProject, "main.py", "/", getPythonSampleCode(), "python");
         createSampleFile(sampleProject, "requirements.txt", "/", getPythonRequirements(), "text");
 
-        System.out.println("Sample data initialization completed!");
-        System.out.println("Demo users created:");
-        System.out.println("- admin@codesync.com / password123 (Admin access)");
-        System.out.println("- demo@codesync.com / password123 (Write access)");
-        System.out.println("- john@codesync.com / password123 (Read access)");
+        log.info("Sample data initialization completed!");
+        log.info("Demo users created:");
+        log.info("- admin@codesync.com / password123 (Admin access)");
+        log.info("- demo@codesync.com / password123 (Write access)");
+        log.info("- john@codesync.com / password123 (Read access)");
     }
 
     private User createUser(String username, String email, String fullName, String password, Role.RoleName roleName) {
@@ -1,6 +1,9 @@
 package com.codesync.config;
 
 import com.codesync.dto.common.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -18,10 +21,13 @@ import jakarta.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
@@ -94,13 +100,30 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error("Invalid argument: " + ex.getMessage()));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<String>> handleTooManyRequestsException(
+            TooManyRequestsException ex, WebRequest request) {
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ApiResponse<String>> handleRejectedExecutionException(
+            RejectedExecutionException ex, WebRequest request) {
+        
+        // A bounded worker pool is full; the client should back off briefly
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error("Server is busy, please try again shortly"));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<String>> handleRuntimeException(
             RuntimeException ex, WebRequest request) {
         
-        // Log the exception for debugging
-        System.err.println("Runtime exception: " + ex.getMessage());
-        ex.printStackTrace();
+        log.error("Runtime exception: {}", ex.getMessage(), ex);
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("An error occurred: " + ex.getMessage()));
@@ -110,9 +133,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ApiResponse<String>> handleGlobalException(
             Exception ex, WebRequest request) {
         
-        // Log the exception for debugging
-        System.err.println("Unexpected exception: " + ex.getMessage());
-        ex.printStackTrace();
+        log.error("Unexpected exception: {}", ex.getMessage(), ex);
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("An unexpected error occurred. Please try again later."));
@@ -152,6 +173,19 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(FileVersionConflictException.class)
+    public ResponseEntity<ApiResponse<Map<String, Object>>> handleFileVersionConflictException(
+            FileVersionConflictException ex, WebRequest request) {
+        
+        // Tell the client what it is behind, so it can rebase its edits without another request
+        Map<String, Object> data = new HashMap<>();
+        data.put("currentVersion", ex.getCurrentVersion());
+        data.put("mergeCandidate", ex.getMergeCandidate());
+        data.put("mergeConflicts", ex.getMergeConflicts());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(ex.getMessage(), data));
+    }
+
     // Custom exception classes
     public static class UserAlreadyExistsException extends RuntimeException {
         public UserAlreadyExistsException(String message) {
@@ -177,6 +211,53 @@ public class GlobalExceptionHandler {
         }
     }
 
+    public static class FileVersionConflictException extends RuntimeException {
+        private final String currentVersion;
+        private final String mergeCandidate;
+        private final int mergeConflicts;
+
+        public FileVersionConflictException(String message, String currentVersion) {
+            this(message, currentVersion, null, 0);
+        }
+
+        /**
+         * @param mergeCandidate the client's change merged with the current content, with conflict
+         *                       markers around {@code mergeConflicts} overlapping edits; null if unknown
+         */
+        public FileVersionConflictException(String message, String currentVersion, String mergeCandidate,
+                                            int mergeConflicts) {
+            super(message);
+            this.currentVersion = currentVersion;
+            this.mergeCandidate = mergeCandidate;
+            this.mergeConflicts = mergeConflicts;
+        }
+
+        public String getCurrentVersion() {
+            return currentVersion;
+        }
+
+        public String getMergeCandidate() {
+            return mergeCandidate;
+        }
+
+        public int getMergeConflicts() {
+            return mergeConflicts;
+        }
+    }
+
+    public static class TooManyRequestsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyRequestsException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
     // Utility method to extract field name from property path
     private String getFieldName(String propertyPath) {
         String[] parts = propertyPath.split("\\.");
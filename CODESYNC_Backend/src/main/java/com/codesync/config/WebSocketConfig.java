@@ -1,11 +1,18 @@
 package com.codesync.config;
 
+import com.codesync.websocket.AdmissionControlInterceptor;
 import com.codesync.websocket.CollaborationWebSocketHandler;
+import com.codesync.websocket.CompressionAwareUpgradeStrategy;
+import com.codesync.websocket.SessionIdentityInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 @Configuration
 @EnableWebSocket
@@ -14,9 +21,32 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private CollaborationWebSocketHandler collaborationWebSocketHandler;
 
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private SessionIdentityInterceptor sessionIdentityInterceptor;
+
+    @Value("${app.collaboration.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${app.collaboration.inbound.buffer-size:65536}")
+    private int inboundBufferSize;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(collaborationWebSocketHandler, "/ws/collaboration/{projectId}")
+                .setHandshakeHandler(new DefaultHandshakeHandler(new CompressionAwareUpgradeStrategy(compressionEnabled)))
+                .addInterceptors(admissionControlInterceptor, sessionIdentityInterceptor)
                 .setAllowedOrigins("*"); // Configure CORS for WebSocket
     }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        // Messages larger than these buffers are delivered to the handler in parts
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(inboundBufferSize);
+        container.setMaxBinaryMessageBufferSize(inboundBufferSize);
+        return container;
+    }
 }
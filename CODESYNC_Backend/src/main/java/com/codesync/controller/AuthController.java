@@ -1,5 +1,10 @@
 package com.codesync.controller;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -12,10 +17,13 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.codesync.dto.auth.JwtResponse;
 import com.codesync.dto.auth.LoginRequest;
+import com.codesync.dto.auth.RefreshTokenRequest;
 import com.codesync.dto.auth.RegisterRequest;
 import com.codesync.dto.common.ApiResponse;
+import com.codesync.security.LoginRateLimiter;
 import com.codesync.service.AuthService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @RestController
@@ -23,47 +31,48 @@ import jakarta.validation.Valid;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    // Rate limited per account and address; the password check itself runs on the hashing pool
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<JwtResponse>> login(/*@Valid*/ @RequestBody LoginRequest loginRequest) {
-        try {
-            System.out.println("=== LOGIN ATTEMPT DEBUG ===");
-            System.out.println("Request received");
-            System.out.println("Username: " + loginRequest.getUsername());
-            System.out.println("Password provided: " + (loginRequest.getPassword() != null));
-            System.out.println("About to call authService.authenticateUser...");
-            
-            JwtResponse jwtResponse = authService.authenticateUser(loginRequest);
-            
-            System.out.println("Login successful for user: " + loginRequest.getUsername());
-            return ResponseEntity.ok(ApiResponse.success("Login successful", jwtResponse));
-        } catch (Exception e) {
-            System.err.println("=== LOGIN FAILED DEBUG ===");
-            System.err.println("Exception type: " + e.getClass().getName());
-            System.err.println("Exception message: " + e.getMessage());
-            System.err.println("=== FULL STACK TRACE ===");
-            e.printStackTrace();
-            System.err.println("=== END STACK TRACE ===");
-            return ResponseEntity.status(500).body(ApiResponse.error("Login failed: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<ApiResponse<JwtResponse>>> login(/*@Valid*/ @RequestBody LoginRequest loginRequest,
+                                                                           HttpServletRequest request) {
+        loginRateLimiter.acquire(loginRequest.getUsername(), request.getRemoteAddr());
+        return authService.authenticateUserAsync(loginRequest)
+                .thenApply(jwtResponse -> ResponseEntity.ok(ApiResponse.success("Login successful", jwtResponse)))
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    log.warn("Login failed for user {}: {}", loginRequest.getUsername(), cause.getMessage());
+                    return ResponseEntity.status(500).body(ApiResponse.error("Login failed: " + cause.getMessage()));
+                });
     }
 
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<JwtResponse>> register(@Valid @RequestBody RegisterRequest registerRequest) {
-        try {
-            JwtResponse jwtResponse = authService.registerUser(registerRequest);
-            return ResponseEntity.ok(ApiResponse.success("Registration successful", jwtResponse));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(ApiResponse.error("Registration failed: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<ApiResponse<JwtResponse>>> register(@Valid @RequestBody RegisterRequest registerRequest) {
+        return authService.registerUserAsync(registerRequest)
+                .thenApply(jwtResponse -> ResponseEntity.ok(ApiResponse.success("Registration successful", jwtResponse)))
+                .exceptionally(e -> ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Registration failed: " + unwrap(e).getMessage())));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<JwtResponse>> refresh(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        JwtResponse jwtResponse = authService.refreshToken(refreshRequest.getRefreshToken());
+        return ResponseEntity.ok(ApiResponse.success("Token refreshed", jwtResponse));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<String>> logout() {
-        // In a stateless JWT system, logout is typically handled on the client side
-        // by removing the token from storage
+    public ResponseEntity<ApiResponse<String>> logout(@RequestHeader(value = "Authorization", required = false) String token,
+                                                      @RequestBody(required = false) RefreshTokenRequest refreshRequest) {
+        // The client drops its tokens; revoking them here stops copies from being used until they expire
+        authService.logout(token != null ? token.replace("Bearer ", "") : null,
+                refreshRequest != null ? refreshRequest.getRefreshToken() : null);
         return ResponseEntity.ok(ApiResponse.success("Logged out successfully", null));
     }
 
@@ -79,4 +88,9 @@ public class AuthController {
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Token validation failed: " + e.getMessage()));
         }
-    }}
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,32 @@
+package com.codesync.controller;
+
+import com.codesync.dto.common.ApiResponse;
+import com.codesync.websocket.relay.ProjectAffinity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/collaboration")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class CollaborationController {
+
+    @Autowired
+    private ProjectAffinity projectAffinity;
+
+    /**
+     * Node that owns the project's live documents, for routing its WebSocket sessions.
+     */
+    @GetMapping("/projects/{projectId}/node")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getProjectNode(@PathVariable Long projectId) {
+        String owner = projectAffinity.ownerOf(projectId.toString());
+        Map<String, Object> node = new HashMap<>();
+        node.put("projectId", projectId);
+        node.put("nodeId", owner);
+        node.put("local", owner.equals(projectAffinity.getNodeId()));
+        return ResponseEntity.ok(ApiResponse.success("Project node resolved", node));
+    }
+}
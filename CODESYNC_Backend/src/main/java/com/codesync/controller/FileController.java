@@ -1,14 +1,20 @@
 package com.codesync.controller;
 
+import com.codesync.config.GlobalExceptionHandler.FileVersionConflictException;
 import com.codesync.dto.common.ApiResponse;
 import com.codesync.dto.file.CreateFileRequest;
 import com.codesync.dto.file.FileResponse;
+import com.codesync.dto.file.FileVersionResponse;
+import com.codesync.dto.file.PatchFileRequest;
 import com.codesync.service.FileService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -45,32 +51,72 @@ public class FileController {
         }
     }
 
+    /**
+     * The ETag is the file's version; a matching If-None-Match gets 304 without the content.
+     */
     @GetMapping("/{fileId}")
     public ResponseEntity<ApiResponse<FileResponse>> getFile(
             @PathVariable Long fileId,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest webRequest) {
         try {
+            String version = fileService.getFileVersion(fileId, authentication.getName());
+            if (version != null && webRequest.checkNotModified(version)) {
+                // checkNotModified has already set the ETag
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
             FileResponse file = fileService.getFile(fileId, authentication.getName());
-            return ResponseEntity.ok(ApiResponse.success("File retrieved successfully", file));
+            return ResponseEntity.ok()
+                    .eTag(file.getVersion())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(ApiResponse.success("File retrieved successfully", file));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve file: " + e.getMessage()));
         }
     }
 
+    /**
+     * Saves only if the file is still at {@code baseVersion} (or the If-Match version) when one is
+     * given, and answers 409 with a merge candidate otherwise. Without one the save overwrites.
+     */
     @PutMapping("/{fileId}")
     public ResponseEntity<ApiResponse<FileResponse>> updateFile(
             @PathVariable Long fileId,
             @RequestBody Map<String, String> request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             Authentication authentication) {
         try {
             String content = request.get("content");
-            FileResponse file = fileService.updateFileContent(fileId, content, authentication.getName());
-            return ResponseEntity.ok(ApiResponse.success("File updated successfully", file));
+            String baseVersion = request.get("baseVersion");
+            if (baseVersion == null && ifMatch != null && !"*".equals(ifMatch.trim())) {
+                baseVersion = ifMatch.replace("\"", "");
+            }
+            FileResponse file = fileService.updateFileContent(fileId, content, baseVersion, authentication.getName());
+            return ResponseEntity.ok()
+                    .eTag(file.getVersion())
+                    .body(ApiResponse.success("File updated successfully", file));
+        } catch (FileVersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update file: " + e.getMessage()));
         }
     }
 
+    /**
+     * Save range edits instead of the whole file; PUT with full content remains the fallback.
+     * Conflicts (409) and invalid edits (400) are reported by the exception handler.
+     */
+    @PatchMapping("/{fileId}")
+    public ResponseEntity<ApiResponse<FileVersionResponse>> patchFile(
+            @PathVariable Long fileId,
+            @Valid @RequestBody PatchFileRequest request,
+            Authentication authentication) {
+        FileVersionResponse version = fileService.patchFileContent(fileId, request, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success("File updated successfully", version));
+    }
+
     @DeleteMapping("/{fileId}")
     public ResponseEntity<ApiResponse<String>> deleteFile(
             @PathVariable Long fileId,
@@ -12,6 +12,7 @@ public class FileResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long projectId;
+    private String version;
     
     public FileResponse() {}
     
@@ -91,4 +92,12 @@ public class FileResponse {
     public void setProjectId(Long projectId) {
         this.projectId = projectId;
     }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public void setVersion(String version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
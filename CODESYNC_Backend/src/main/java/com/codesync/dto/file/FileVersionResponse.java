@@ -0,0 +1,56 @@
+package com.codesync.dto.file;
+
+import java.time.LocalDateTime;
+
+/**
+ * Result of a patch: the new version to base the next edits on, without the content.
+ */
+public class FileVersionResponse {
+    
+    private Long id;
+    private String version;
+    private int length;
+    private LocalDateTime updatedAt;
+    
+    public FileVersionResponse() {}
+    
+    public FileVersionResponse(Long id, String version, int length, LocalDateTime updatedAt) {
+        this.id = id;
+        this.version = version;
+        this.length = length;
+        this.updatedAt = updatedAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public void setVersion(String version) {
+        this.version = version;
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    public void setLength(int length) {
+        this.length = length;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,93 @@
+package com.codesync.dto.file;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range edits against the file content identified by {@code baseVersion}.
+ * Offsets are UTF-16 code units into the base content and ranges must not overlap.
+ */
+public class PatchFileRequest {
+    
+    @NotBlank(message = "Base version is required")
+    private String baseVersion;
+    
+    @NotNull(message = "Edits are required")
+    @Valid
+    private List<Edit> edits = new ArrayList<>();
+    
+    public PatchFileRequest() {}
+    
+    public PatchFileRequest(String baseVersion, List<Edit> edits) {
+        this.baseVersion = baseVersion;
+        this.edits = edits;
+    }
+    
+    // Getters and Setters
+    public String getBaseVersion() {
+        return baseVersion;
+    }
+    
+    public void setBaseVersion(String baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+    
+    public List<Edit> getEdits() {
+        return edits;
+    }
+    
+    public void setEdits(List<Edit> edits) {
+        this.edits = edits;
+    }
+    
+    /**
+     * Replace {@code [start, end)} of the base content with {@code text}.
+     */
+    public static class Edit {
+        
+        @Min(value = 0, message = "Edit start must not be negative")
+        private int start;
+        
+        @Min(value = 0, message = "Edit end must not be negative")
+        private int end;
+        
+        private String text = "";
+        
+        public Edit() {}
+        
+        public Edit(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+        
+        public int getStart() {
+            return start;
+        }
+        
+        public void setStart(int start) {
+            this.start = start;
+        }
+        
+        public int getEnd() {
+            return end;
+        }
+        
+        public void setEnd(int end) {
+            this.end = end;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.codesync.entity;
 
+import com.codesync.collaboration.ContentVersion;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -20,6 +21,10 @@ public class ProjectFile {
     @Column(columnDefinition = "TEXT")
     private String content;
     
+    // Version of the content as clients see it; conditional saves compare against it
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
     @Column
     private String language;
     
@@ -47,9 +52,15 @@ public class ProjectFile {
         this.project = project;
     }
     
+    @PrePersist
+    public void prePersist() {
+        this.contentHash = ContentVersion.of(content);
+    }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.contentHash = ContentVersion.of(content);
     }
     
     // Getters and Setters
@@ -109,6 +120,14 @@ public class ProjectFile {
         this.updatedAt = updatedAt;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     public Project getProject() {
         return project;
     }
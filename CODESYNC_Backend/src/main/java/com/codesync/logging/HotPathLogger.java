@@ -0,0 +1,102 @@
+package com.codesync.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for code that runs per request or per message.
+ *
+ * Each call is checked against the level first, so a disabled event costs a
+ * flag read and a level check and never formats its arguments. Enabled events
+ * are sampled: at most {@link HotPathLogging#getMaxEventsPerSecond()} per
+ * logger and second are written, and the number skipped is reported with the
+ * next written event, so a burst of traffic cannot turn into a burst of
+ * console writes. Warnings and errors that must always be seen belong on a
+ * plain slf4j logger.
+ */
+public final class HotPathLogger {
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger windowEvents = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private HotPathLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static HotPathLogger getLogger(Class<?> type) {
+        return new HotPathLogger(LoggerFactory.getLogger(type));
+    }
+
+    public boolean isDebugEnabled() {
+        return HotPathLogging.isEnabled() && logger.isDebugEnabled();
+    }
+
+    public void debug(String format, Object arg) {
+        if (isDebugEnabled() && sample()) {
+            logger.debug(withSuppressed(format), arg);
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (isDebugEnabled() && sample()) {
+            logger.debug(withSuppressed(format), arg1, arg2);
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2, Object arg3) {
+        if (isDebugEnabled() && sample()) {
+            logger.debug(withSuppressed(format), arg1, arg2, arg3);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (HotPathLogging.isEnabled() && logger.isInfoEnabled() && sample()) {
+            logger.info(withSuppressed(format), arg1, arg2);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (HotPathLogging.isEnabled() && logger.isInfoEnabled() && sample()) {
+            logger.info(withSuppressed(format), arg1, arg2, arg3);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (HotPathLogging.isEnabled() && logger.isWarnEnabled() && sample()) {
+            logger.warn(withSuppressed(format), arg);
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (HotPathLogging.isEnabled() && logger.isWarnEnabled() && sample()) {
+            logger.warn(withSuppressed(format), arg1, arg2);
+        }
+    }
+
+    // True if the event fits in the current one-second window
+    private boolean sample() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= SECOND_NANOS && windowStart.compareAndSet(start, now)) {
+            windowEvents.set(0);
+        }
+        if (windowEvents.incrementAndGet() <= HotPathLogging.getMaxEventsPerSecond()) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        HotPathLogging.recordSuppressed();
+        return false;
+    }
+
+    private String withSuppressed(String format) {
+        long skipped = suppressed.getAndSet(0);
+        return skipped == 0 ? format : format + " [" + skipped + " earlier events suppressed]";
+    }
+}
@@ -0,0 +1,68 @@
+package com.codesync.logging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runtime switch and sampling rate for every {@link HotPathLogger}, exposed as
+ * the {@code /actuator/hotpathlogging} endpoint.
+ *
+ * Levels are still changed through {@code /actuator/loggers}; this endpoint
+ * turns hot-path events off entirely or changes how many get through, without
+ * a restart.
+ */
+@Component
+@Endpoint(id = "hotpathlogging")
+public class HotPathLogging {
+
+    // Static so loggers held in static fields need no reference to the bean
+    private static volatile boolean enabled = true;
+    private static volatile int maxEventsPerSecond = 20;
+    private static final AtomicLong suppressedTotal = new AtomicLong();
+
+    public HotPathLogging(@Value("${app.logging.hot-path.enabled:true}") boolean enabled,
+                          @Value("${app.logging.hot-path.max-events-per-second:20}") int maxEventsPerSecond) {
+        HotPathLogging.enabled = enabled;
+        HotPathLogging.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static int getMaxEventsPerSecond() {
+        return maxEventsPerSecond;
+    }
+
+    static void recordSuppressed() {
+        suppressedTotal.incrementAndGet();
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", enabled);
+        settings.put("maxEventsPerSecond", maxEventsPerSecond);
+        settings.put("suppressedTotal", suppressedTotal.get());
+        return settings;
+    }
+
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Boolean enabled, @Nullable Integer maxEventsPerSecond) {
+        if (enabled != null) {
+            HotPathLogging.enabled = enabled;
+        }
+        if (maxEventsPerSecond != null && maxEventsPerSecond >= 0) {
+            HotPathLogging.maxEventsPerSecond = maxEventsPerSecond;
+        }
+        return settings();
+    }
+}
@@ -3,10 +3,13 @@ package com.codesync.repository;
 import com.codesync.entity.Project;
 import com.codesync.entity.ProjectFile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,8 +33,40 @@ public interface ProjectFileRepository extends JpaRepository<ProjectFile, Long>
     void deleteByProject(Project project);
 
     List<ProjectFile> findByProjectId(Long projectId);
+
+    Optional<ProjectFile> findByIdAndProjectId(Long id, Long projectId);
     
     Optional<ProjectFile> findByProjectIdAndName(Long projectId, String name);
     
     List<ProjectFile> findByProjectIdAndLanguage(Long projectId, String language);
+
+    @Query("SELECT new com.codesync.repository.ProjectFileSummary(f.id, f.name, f.filePath, f.language, "
+            + "f.createdAt, f.updatedAt, f.project.id, f.contentHash) FROM ProjectFile f WHERE f.id = :id")
+    Optional<ProjectFileSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT f.contentHash FROM ProjectFile f WHERE f.id = :id")
+    Optional<String> findContentHashById(@Param("id") Long id);
+
+    List<ProjectFile> findTop100ByContentHashIsNull();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProjectFile f SET f.contentHash = :contentHash WHERE f.id = :id")
+    int updateContentHash(@Param("id") Long id, @Param("contentHash") String contentHash);
+
+    @Modifying
+    @Query("UPDATE ProjectFile f SET f.content = :content, f.contentHash = :contentHash, f.updatedAt = :updatedAt WHERE f.id = :id")
+    int updateContent(@Param("id") Long id, @Param("content") String content, @Param("contentHash") String contentHash,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Compare-and-set: write the content only if the stored version is still {@code expectedHash}.
+     * Returns 0 when another save got there first or the file does not exist.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProjectFile f SET f.content = :content, f.contentHash = :contentHash, f.updatedAt = :updatedAt "
+            + "WHERE f.id = :id AND f.contentHash = :expectedHash")
+    int updateContentIfUnchanged(@Param("id") Long id, @Param("content") String content,
+                                 @Param("contentHash") String contentHash, @Param("updatedAt") LocalDateTime updatedAt,
+                                 @Param("expectedHash") String expectedHash);
 }
@@ -0,0 +1,11 @@
+package com.codesync.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file without its content, for answering requests that do not need the text.
+ */
+public record ProjectFileSummary(Long id, String name, String filePath, String language,
+                                 LocalDateTime createdAt, LocalDateTime updatedAt, Long projectId,
+                                 String contentHash) {
+}
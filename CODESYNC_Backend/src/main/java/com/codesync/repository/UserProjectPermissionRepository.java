@@ -1,6 +1,8 @@
 package com.codesync.repository;
 
 import com.codesync.entity.UserProjectPermission;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -14,7 +16,20 @@ public interface UserProjectPermissionRepository extends JpaRepository<UserProje
 
     List<UserProjectPermission> findByProjectId(Long projectId);
 
+    @Cacheable(cacheNames = "projectPermissions", key = "#p0 + ':' + #p1", unless = "#result == null")
     Optional<UserProjectPermission> findByUserIdAndProjectId(Long userId, Long projectId);
 
     List<UserProjectPermission> findByUserIdAndPermission(Long userId, UserProjectPermission.Permission permission);
+
+    @Override
+    @CacheEvict(cacheNames = "projectPermissions", key = "#p0.user.id + ':' + #p0.project.id")
+    <S extends UserProjectPermission> S save(S permission);
+
+    @Override
+    @CacheEvict(cacheNames = "projectPermissions", key = "#p0.user.id + ':' + #p0.project.id")
+    void delete(UserProjectPermission permission);
+
+    @Override
+    @CacheEvict(cacheNames = "projectPermissions", allEntries = true)
+    void deleteById(Long id);
 }
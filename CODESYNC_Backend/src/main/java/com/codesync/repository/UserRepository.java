@@ -3,6 +3,8 @@ package com.codesync.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -14,11 +16,61 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByUsername(String username);
     
+    // Cached users are shared between threads; use readByEmail before changing them
+    @Cacheable(cacheNames = "usersByEmail", key = "#p0", unless = "#result == null")
     Optional<User> findByEmail(String email);
     
+    // Uncached lookup for callers that change the user
+    Optional<User> readByEmail(String email);
+    
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
     
     List<User> findByRole_Name(Role.RoleName roleName);
+    
+    // Writes clear the whole cache: a save may change the email the entry is keyed by
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    <S extends User> S save(S user);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    <S extends User> List<S> saveAll(Iterable<S> users);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    <S extends User> S saveAndFlush(S user);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void delete(User user);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteById(Long id);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAllById(Iterable<? extends Long> ids);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAll(Iterable<? extends User> users);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAll();
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAllInBatch(Iterable<User> users);
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAllInBatch();
+    
+    @Override
+    @CacheEvict(cacheNames = "usersByEmail", allEntries = true)
+    void deleteAllByIdInBatch(Iterable<Long> ids);
 }
@@ -1,8 +1,14 @@
 package com.codesync.security;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -12,10 +18,21 @@ import com.codesync.entity.User;
 import com.codesync.repository.UserRepository;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     private final UserRepository userRepository;
 
+    // token subject -> principal checked against the database, when app.security.user-cache.enabled
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+
+    @Value("${app.security.user-cache.enabled:false}")
+    private boolean userCacheEnabled;
+
+    @Value("${app.security.user-cache.ttl-ms:30000}")
+    private long userCacheTtlMs;
+
     public CustomUserDetailsService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -23,18 +40,83 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        User user = findUser(username);
+
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(user.getEmail()) // Use email as the principal
+                .password(user.getPassword())
+                .authorities(new ArrayList<>()) // Add roles/authorities here if needed
+                .build();
+    }
+
+    /**
+     * Store a rehashed password, called after a successful login when the
+     * stored hash is weaker than the configured BCrypt strength.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        // Bypass the email cache so the instance other threads read is not changed
+        String username = userDetails.getUsername();
+        User user = userRepository.readByEmail(username)
+                .or(() -> userRepository.findByUsername(username))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        log.info("Upgraded password hash of user: {}", user.getId());
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
+    /**
+     * Whether API requests should confirm the token's user against the
+     * database (at most once per TTL) instead of trusting the claims alone.
+     */
+    public boolean isUserCacheEnabled() {
+        return userCacheEnabled;
+    }
+
+    /**
+     * Principal of the user as currently stored, served from the short-lived
+     * cache when it is enabled.
+     */
+    @Transactional(readOnly = true)
+    public UserPrincipal loadPrincipal(String username) throws UsernameNotFoundException {
+        if (!userCacheEnabled) {
+            return UserPrincipal.from(findUser(username));
+        }
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = principals.get(username);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.principal;
+        }
+        UserPrincipal principal = UserPrincipal.from(findUser(username));
+        principals.put(username, new CachedPrincipal(principal, now + userCacheTtlMs));
+        return principal;
+    }
+
+    /**
+     * Forget the cached principal so the next request sees the user's current
+     * state, e.g. after the user was changed or removed.
+     */
+    public void evictPrincipal(String email) {
+        if (email != null) {
+            // Tokens from before the email subject are keyed by username
+            principals.values().removeIf(cached -> email.equals(cached.principal.getEmail()));
+        }
+    }
+
+    private User findUser(String username) {
         // Try to find user by email first (for email-based login)
-        User user = userRepository.findByEmail(username)
+        return userRepository.findByEmail(username)
                 .orElseGet(() -> {
                     // If not found by email, try by username (fallback)
                     return userRepository.findByUsername(username)
                             .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
                 });
+    }
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getEmail()) // Use email as the principal
-                .password(user.getPassword())
-                .authorities(new ArrayList<>()) // Add roles/authorities here if needed
-                .build();
+    private record CachedPrincipal(UserPrincipal principal, long expiresAt) {
     }
 }
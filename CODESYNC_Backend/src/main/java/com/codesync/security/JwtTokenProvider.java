@@ -1,85 +1,242 @@
 package com.codesync.security;
 
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import com.codesync.entity.User;
+import com.codesync.logging.HotPathLogger;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class JwtTokenProvider {
 
+    private static final HotPathLogger hotLog = HotPathLogger.getLogger(JwtTokenProvider.class);
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_TYPE = "token_type";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private int jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.jwt.refresh-expiration:604800000}")
+    private long jwtRefreshExpirationInMs;
+
+    @Value("${app.jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private final TokenRevocationIndex revocationIndex;
+    private final Timer cachedValidations;
+    private final Timer verifiedValidations;
+    private final Timer rejectedValidations;
+
+    // Built once; both are immutable and safe to share between request threads
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens whose signature was already checked, so repeat requests skip the HMAC; each entry expires with its token
+    private Cache<String, Claims> verifiedTokens;
+
+    public JwtTokenProvider(TokenRevocationIndex revocationIndex, MeterRegistry meterRegistry) {
+        this.revocationIndex = revocationIndex;
+        this.cachedValidations = validationTimer(meterRegistry, "cached");
+        this.verifiedValidations = validationTimer(meterRegistry, "verified");
+        this.rejectedValidations = validationTimer(meterRegistry, "rejected");
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(Math.max(verifiedCacheSize, 0))
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) {
+                            return Long.MAX_VALUE;
+                        }
+                        long remainingMs = expiration.getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, claims, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateToken(Authentication authentication) {
-        String username = authentication.getName();
+    /**
+     * Token for the user, carrying enough claims to rebuild the principal
+     * without a database lookup. The subject is the email.
+     */
+    public String generateToken(User user) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
 
         return Jwts.builder()
-                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_EMAIL, user.getEmail())
+                .claim(CLAIM_ROLE, user.getRole() != null ? user.getRole().getName().name() : null)
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String generateTokenFromUsername(String username) {
-        Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
+    /**
+     * Long-lived token that can only be exchanged for new tokens, never used
+     * to call the API.
+     */
+    public String generateRefreshToken(User user) {
+        Date expiryDate = new Date(System.currentTimeMillis() + jwtRefreshExpirationInMs);
 
         return Jwts.builder()
-                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH)
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verify an access token and return its claims, or null if it is not valid
+     * or was revoked. Callers should use this once per request instead of
+     * validating and then reading the subject separately. The claims may be
+     * shared with other requests presenting the same token and must not be
+     * modified.
+     */
+    public Claims parseClaims(String token) {
+        Claims claims = verify(token);
+        if (claims == null || isRefreshToken(claims) || revocationIndex.isRevoked(claims.getId())) {
+            return null;
+        }
+        return claims;
+    }
 
-        return claims.getSubject();
+    /**
+     * Verify a refresh token and return its claims, or null if it is not a
+     * valid, unrevoked refresh token.
+     */
+    public Claims parseRefreshClaims(String token) {
+        Claims claims = verify(token);
+        if (claims == null || !isRefreshToken(claims) || revocationIndex.isRevoked(claims.getId())) {
+            return null;
+        }
+        return claims;
     }
 
-    public boolean validateToken(String authToken) {
+    /**
+     * Revoke the token the claims belong to. Returns false if it was already
+     * revoked or carries no id.
+     */
+    public boolean revoke(Claims claims) {
+        return revocationIndex.revoke(claims.getId(), claims.getExpiration());
+    }
+
+    private Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Claims cached = verifiedTokens.getIfPresent(token);
+        // Entries are dropped once their token expires, but not necessarily by the millisecond
+        if (cached != null && !isExpired(cached)) {
+            record(cachedValidations, start);
+            return cached;
+        }
+
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            System.out.println("JWT token validation successful");
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            remember(token, claims);
+            record(verifiedValidations, start);
+            return claims;
         } catch (MalformedJwtException ex) {
-            System.err.println("Invalid JWT token: " + ex.getMessage());
+            hotLog.debug("Invalid JWT token: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
-            System.err.println("Expired JWT token: " + ex.getMessage());
+            hotLog.debug("Expired JWT token: {}", ex.getMessage());
         } catch (UnsupportedJwtException ex) {
-            System.err.println("Unsupported JWT token: " + ex.getMessage());
+            hotLog.debug("Unsupported JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
-            System.err.println("JWT claims string is empty: " + ex.getMessage());
+            hotLog.debug("JWT claims string is empty: {}", ex.getMessage());
         } catch (Exception ex) {
-            System.err.println("JWT token validation error: " + ex.getMessage());
+            hotLog.warn("JWT token validation error: {}: {}", ex.getClass().getSimpleName(), ex.getMessage());
+        }
+        record(rejectedValidations, start);
+        return null;
+    }
+
+    public String getUsernameFromToken(String token) {
+        Claims claims = parseClaims(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    private void remember(String token, Claims claims) {
+        if (verifiedCacheSize > 0) {
+            verifiedTokens.put(token, claims);
         }
-        return false;
+    }
+
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // cached: signature checked by an earlier request; verified: HMAC checked now; rejected: not valid
+    private static Timer validationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("codesync.auth.jwt.validation")
+                .description("Time to validate a token's signature and expiry")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE));
+    }
+
+    private boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
     }
 }
@@ -0,0 +1,114 @@
+package com.codesync.security;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.codesync.config.GlobalExceptionHandler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token buckets per account and per client address in front of login.
+ *
+ * Each attempt takes a token from both buckets before any password is
+ * checked, so guessing against one account, or spraying many accounts from
+ * one address, is turned away with 429 without spending BCrypt time on it.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final Limit accountLimit;
+    private final Limit addressLimit;
+    private final Map<String, Bucket> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> addresses = new ConcurrentHashMap<>();
+    private final Counter accountThrottled;
+    private final Counter addressThrottled;
+
+    public LoginRateLimiter(@Value("${app.security.login.account.permits-per-minute:10}") double accountPermitsPerMinute,
+                            @Value("${app.security.login.account.burst:5}") double accountBurst,
+                            @Value("${app.security.login.address.permits-per-minute:60}") double addressPermitsPerMinute,
+                            @Value("${app.security.login.address.burst:20}") double addressBurst,
+                            MeterRegistry meterRegistry) {
+        this.accountLimit = new Limit(accountPermitsPerMinute / 60.0, accountBurst);
+        this.addressLimit = new Limit(addressPermitsPerMinute / 60.0, addressBurst);
+        this.accountThrottled = Counter.builder("codesync.auth.login.throttled")
+                .description("Login attempts turned away by rate limiting")
+                .tag("scope", "account")
+                .register(meterRegistry);
+        this.addressThrottled = Counter.builder("codesync.auth.login.throttled")
+                .description("Login attempts turned away by rate limiting")
+                .tag("scope", "address")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a login attempt for the account from the address.
+     *
+     * @throws GlobalExceptionHandler.TooManyRequestsException if either limit is exhausted
+     */
+    public void acquire(String account, String address) {
+        long retryAfter = take(addresses, address, addressLimit);
+        if (retryAfter > 0) {
+            addressThrottled.increment();
+            throw new GlobalExceptionHandler.TooManyRequestsException(
+                    "Too many login attempts, please try again later", retryAfter);
+        }
+        String accountKey = account != null ? account.trim().toLowerCase(Locale.ROOT) : "";
+        retryAfter = take(accounts, accountKey, accountLimit);
+        if (retryAfter > 0) {
+            accountThrottled.increment();
+            throw new GlobalExceptionHandler.TooManyRequestsException(
+                    "Too many login attempts for this account, please try again later", retryAfter);
+        }
+    }
+
+    // Buckets that have refilled completely carry no state worth keeping
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        accounts.values().removeIf(bucket -> bucket.isFull(accountLimit, now));
+        addresses.values().removeIf(bucket -> bucket.isFull(addressLimit, now));
+    }
+
+    // Returns 0 if a token was taken, otherwise the seconds until one is available
+    private long take(Map<String, Bucket> buckets, String key, Limit limit) {
+        return buckets.computeIfAbsent(key, k -> new Bucket(limit.burst)).take(limit, System.nanoTime());
+    }
+
+    private record Limit(double permitsPerSecond, double burst) {
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        private synchronized long take(Limit limit, long now) {
+            refill(limit, now);
+            if (tokens < 1) {
+                return Math.max(1, (long) Math.ceil((1 - tokens) / limit.permitsPerSecond));
+            }
+            tokens--;
+            return 0;
+        }
+
+        private synchronized boolean isFull(Limit limit, long now) {
+            refill(limit, now);
+            return tokens >= limit.burst;
+        }
+
+        private void refill(Limit limit, long now) {
+            tokens = Math.min(limit.burst, tokens + (now - lastRefill) / 1_000_000_000.0 * limit.permitsPerSecond);
+            lastRefill = now;
+        }
+    }
+}
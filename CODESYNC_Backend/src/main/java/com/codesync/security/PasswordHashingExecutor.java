@@ -0,0 +1,97 @@
+package com.codesync.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bounded pool for BCrypt hashing and verification.
+ *
+ * A BCrypt check costs tens of milliseconds of CPU by design. Running logins
+ * and registrations here instead of on Tomcat threads means a login surge can
+ * only saturate this pool; once its queue is full further work is rejected
+ * with a {@link RejectedExecutionException} rather than
+ * piling up behind unrelated API requests.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor pool;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(@Value("${app.security.bcrypt.threads:0}") int threads,
+                                   @Value("${app.security.bcrypt.queue-capacity:64}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        int threadTotal = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(threadTotal, threadTotal, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("bcrypt-"));
+
+        Gauge.builder("codesync.auth.bcrypt.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("Threads currently hashing or verifying a password")
+                .register(meterRegistry);
+        Gauge.builder("codesync.auth.bcrypt.queue", pool, executor -> executor.getQueue().size())
+                .description("Password operations waiting for a hashing thread")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("codesync.auth.bcrypt.queue.wait")
+                .description("Time a password operation waited for a hashing thread")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("codesync.auth.bcrypt.rejected")
+                .description("Password operations rejected because the hashing queue was full")
+                .register(meterRegistry);
+
+        log.info("Password hashing pool started with {} threads and a queue of {}", threadTotal, queueCapacity);
+    }
+
+    /**
+     * Run a task that hashes or verifies a password on the pool.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
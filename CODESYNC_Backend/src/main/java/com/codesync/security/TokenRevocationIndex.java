@@ -0,0 +1,62 @@
+package com.codesync.security;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Ids ({@code jti}) of tokens revoked before they expire, kept in memory.
+ *
+ * Lookups are a single hash probe so every authenticated request can consult
+ * the index without touching the database. An entry is only needed until the
+ * token it names expires, so the index stays as small as the number of
+ * tokens revoked within one token lifetime and is swept periodically.
+ */
+@Component
+public class TokenRevocationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationIndex.class);
+
+    // jti -> expiry of the revoked token, epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationIndex(MeterRegistry meterRegistry) {
+        Gauge.builder("codesync.auth.revoked.tokens", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    /**
+     * Revoke the token until it expires. Returns false if it already was, so
+     * callers can let exactly one of several concurrent uses of a token win.
+     */
+    public boolean revoke(String jti, Date expiration) {
+        if (jti == null) {
+            return false;
+        }
+        long expiresAt = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+        return revoked.putIfAbsent(jti, expiresAt) == null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-sweep-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        if (before != revoked.size()) {
+            log.debug("Swept {} expired revocations", before - revoked.size());
+        }
+    }
+}
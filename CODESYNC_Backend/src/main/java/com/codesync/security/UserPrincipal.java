@@ -0,0 +1,97 @@
+package com.codesync.security;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.codesync.entity.User;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Authenticated user of an API request, built from the JWT claims so the
+ * request does not have to load the user from the database. The username is
+ * the email, matching what {@link CustomUserDetailsService} uses at login.
+ */
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.authorities = role != null ? List.of(new SimpleGrantedAuthority("ROLE_" + role)) : List.of();
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(),
+                user.getRole() != null ? user.getRole().getName().name() : null);
+    }
+
+    /**
+     * Principal described by the token, or null for tokens issued before they
+     * carried the user id.
+     */
+    public static UserPrincipal fromClaims(Claims claims) {
+        Number id = claims.get(JwtTokenProvider.CLAIM_USER_ID, Number.class);
+        String email = claims.get(JwtTokenProvider.CLAIM_EMAIL, String.class);
+        if (id == null || email == null) {
+            return null;
+        }
+        return new UserPrincipal(id.longValue(), email, claims.get(JwtTokenProvider.CLAIM_ROLE, String.class));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
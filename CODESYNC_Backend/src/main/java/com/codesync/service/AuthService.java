@@ -1,12 +1,13 @@
 package com.codesync.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -15,13 +16,19 @@ import com.codesync.dto.auth.LoginRequest;
 import com.codesync.dto.auth.RegisterRequest;
 import com.codesync.entity.Role;
 import com.codesync.entity.User;
+import com.codesync.logging.HotPathLogger;
 import com.codesync.repository.RoleRepository;
 import com.codesync.repository.UserRepository;
 import com.codesync.security.JwtTokenProvider;
+import com.codesync.security.PasswordHashingExecutor;
+
+import io.jsonwebtoken.Claims;
 
 @Service
 public class AuthService {
 
+    private static final HotPathLogger hotLog = HotPathLogger.getLogger(AuthService.class);
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -37,41 +44,38 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    /**
+     * Verify the credentials on the password hashing pool, keeping the BCrypt
+     * work off the request thread.
+     */
+    public CompletableFuture<JwtResponse> authenticateUserAsync(LoginRequest loginRequest) {
+        return passwordHashingExecutor.submit(() -> authenticateUser(loginRequest));
+    }
+
+    public CompletableFuture<JwtResponse> registerUserAsync(RegisterRequest registerRequest) {
+        return passwordHashingExecutor.submit(() -> registerUser(registerRequest));
+    }
+
     public JwtResponse authenticateUser(LoginRequest loginRequest) {
-        try {
-            System.out.println("AuthService: Starting authentication for: " + loginRequest.getUsername());
-            
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getUsername(),
-                            loginRequest.getPassword()
-                    )
-            );
-            System.out.println("AuthService: Authentication successful");
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            System.out.println("AuthService: About to generate JWT token");
-            
-            String jwt = tokenProvider.generateToken(authentication);
-            System.out.println("AuthService: JWT token generated");
-
-            // Get the authenticated identifier (now it's email from CustomUserDetailsService)
-            String authenticatedIdentifier = authentication.getName();
-            System.out.println("AuthService: Looking up user in database: " + authenticatedIdentifier);
-
-            // Since CustomUserDetailsService returns email as username, look up by email
-            User user = userRepository.findByEmail(authenticatedIdentifier)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            System.out.println("AuthService: User found: " + user.getEmail());
-
-            System.out.println("AuthService: Creating JWT response");
-            return new JwtResponse(jwt, user.getId(), user.getUsername(),
-                    user.getEmail(), user.getFullName(), 
-                    user.getRole() != null ? List.of(user.getRole().getName().getDisplayName()) : List.of("WRITE"));
-        } catch (Exception e) {
-            System.err.println("AuthService ERROR: " + e.getClass().getName() + ": " + e.getMessage());
-            throw e;
-        }
+        hotLog.debug("Authenticating user: {}", loginRequest.getUsername());
+
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        loginRequest.getUsername(),
+                        loginRequest.getPassword()
+                )
+        );
+
+        // Since CustomUserDetailsService returns email as username, look up by email
+        User user = userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        String jwt = tokenProvider.generateToken(user);
+        hotLog.debug("Authenticated user: {}", user.getId());
+        return createJwtResponse(jwt, user);
     }
 
     public JwtResponse registerUser(RegisterRequest registerRequest) {
@@ -100,11 +104,46 @@ public class AuthService {
         User savedUser = userRepository.save(user);
 
         // Generate JWT token
-        String jwt = tokenProvider.generateTokenFromUsername(savedUser.getUsername());
+        String jwt = tokenProvider.generateToken(savedUser);
+
+        return createJwtResponse(jwt, savedUser);
+    }
+
+    /**
+     * Exchange a refresh token for a new access and refresh token. The
+     * presented refresh token is revoked, so each one can be used only once.
+     */
+    public JwtResponse refreshToken(String refreshToken) {
+        Claims claims = tokenProvider.parseRefreshClaims(refreshToken);
+        if (claims == null || !tokenProvider.revoke(claims)) {
+            throw new CredentialsExpiredException("Invalid or expired refresh token");
+        }
+
+        User user = userRepository.findByEmail(claims.getSubject())
+                .orElseThrow(() -> new CredentialsExpiredException("Invalid or expired refresh token"));
+        return createJwtResponse(tokenProvider.generateToken(user), user);
+    }
+
+    /**
+     * Revoke the access token and, if given, the refresh token of a session.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        Claims accessClaims = tokenProvider.parseClaims(accessToken);
+        if (accessClaims != null) {
+            tokenProvider.revoke(accessClaims);
+        }
+        Claims refreshClaims = tokenProvider.parseRefreshClaims(refreshToken);
+        if (refreshClaims != null) {
+            tokenProvider.revoke(refreshClaims);
+        }
+    }
 
-        return new JwtResponse(jwt, savedUser.getId(), savedUser.getUsername(),
-                savedUser.getEmail(), savedUser.getFullName(),
-                savedUser.getRole() != null ? List.of(savedUser.getRole().getName().getDisplayName()) : List.of("WRITE"));
+    private JwtResponse createJwtResponse(String jwt, User user) {
+        JwtResponse response = new JwtResponse(jwt, user.getId(), user.getUsername(),
+                user.getEmail(), user.getFullName(),
+                user.getRole() != null ? List.of(user.getRole().getName().getDisplayName()) : List.of("WRITE"));
+        response.setRefreshToken(tokenProvider.generateRefreshToken(user));
+        return response;
     }
 
     public boolean validateToken(String token) {
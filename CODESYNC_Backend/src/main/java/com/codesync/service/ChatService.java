@@ -2,6 +2,7 @@ package com.codesync.service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -21,6 +22,10 @@ import com.codesync.repository.ChatMessageRepository;
 import com.codesync.repository.ProjectRepository;
 import com.codesync.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
 @Service
 @Transactional
 public class ChatService {
@@ -36,6 +41,18 @@ public class ChatService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Timer persistTimer;
+    
+    @PostConstruct
+    void initMetrics() {
+        persistTimer = Timer.builder("codesync.chat.persist.latency")
+                .description("Time to insert a chat message")
+                .register(meterRegistry);
+    }
+    
     /**
      * Create a new chat message
      */
@@ -65,7 +82,9 @@ public class ChatService {
         }
         
         ChatMessage chatMessage = new ChatMessage(project, user, request.getContent(), messageType);
+        long start = System.nanoTime();
         chatMessage = chatMessageRepository.save(chatMessage);
+        persistTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         
         log.debug("Created chat message with ID: {}", chatMessage.getId());
         return new ChatMessageDto(chatMessage);
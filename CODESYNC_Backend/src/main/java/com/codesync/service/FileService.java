@@ -1,17 +1,38 @@
 package com.codesync.service;
 
+import com.codesync.collaboration.CollaborativeDocument;
+import com.codesync.collaboration.ContentVersion;
+import com.codesync.collaboration.FileMetrics;
+import com.codesync.collaboration.FileVersionHistory;
+import com.codesync.collaboration.LiveDocumentStore;
+import com.codesync.collaboration.ThreeWayMerge;
+import com.codesync.config.GlobalExceptionHandler.FileNotFoundException;
+import com.codesync.config.GlobalExceptionHandler.FileVersionConflictException;
 import com.codesync.dto.file.CreateFileRequest;
 import com.codesync.dto.file.FileResponse;
+import com.codesync.dto.file.FileVersionResponse;
+import com.codesync.dto.file.PatchFileRequest;
 import com.codesync.entity.Project;
 import com.codesync.entity.ProjectFile;
 import com.codesync.entity.User;
 import com.codesync.repository.ProjectFileRepository;
+import com.codesync.repository.ProjectFileSummary;
 import com.codesync.repository.ProjectRepository;
 import com.codesync.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +47,28 @@ public class FileService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LiveDocumentStore liveDocumentStore;
+
+    @Autowired
+    private FileVersionHistory versionHistory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer directSaveTimer;
+    private DistributionSummary directSaveSize;
+    private Timer liveSaveTimer;
+    private DistributionSummary liveSaveSize;
+
+    @PostConstruct
+    void initMetrics() {
+        directSaveTimer = FileMetrics.saveTimer(meterRegistry, FileMetrics.PATH_DIRECT);
+        directSaveSize = FileMetrics.saveSize(meterRegistry, FileMetrics.PATH_DIRECT);
+        liveSaveTimer = FileMetrics.saveTimer(meterRegistry, FileMetrics.PATH_LIVE);
+        liveSaveSize = FileMetrics.saveSize(meterRegistry, FileMetrics.PATH_LIVE);
+    }
+
     public FileResponse createFile(CreateFileRequest request, String username) {
         User user = userRepository.findByEmail(username)  // Changed from findByUsername to findByEmail
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -43,6 +86,7 @@ public class FileService {
         file.setProject(project);
 
         ProjectFile savedFile = fileRepository.save(file);
+        versionHistory.record(savedFile.getId(), savedFile.getContentHash(), savedFile.getContent());
         return convertToResponse(savedFile);
     }
 
@@ -55,10 +99,19 @@ public class FileService {
 
         // Check permissions (simplified)
 
-        return fileRepository.findByProjectId(projectId)
+        List<FileResponse> files = fileRepository.findByProjectId(projectId)
                 .stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
+        for (FileResponse file : files) {
+            // Files being edited right now are newer in memory than in the database
+            CollaborativeDocument document = liveDocumentStore.get(file.getId());
+            if (document != null && document.isLoaded()) {
+                file.setContent(document.getContent());
+                file.setVersion(document.getVersion());
+            }
+        }
+        return files;
     }
 
     public FileResponse getFile(Long fileId, String username) {
@@ -70,21 +123,127 @@ public class FileService {
 
         // Check permissions (simplified)
 
-        return convertToResponse(file);
+        FileResponse response = convertToResponse(file);
+        // A file that is being edited right now is newer in memory than in the database
+        CollaborativeDocument document = liveDocumentStore.get(fileId);
+        if (document != null && document.isLoaded()) {
+            response.setContent(document.getContent());
+            response.setVersion(document.getVersion());
+        }
+        return response;
     }
 
-    public FileResponse updateFileContent(Long fileId, String content, String username) {
+    /**
+     * Current version of a file without reading its content, for conditional GETs.
+     * Returns null when it is not known up front and the file has to be read.
+     */
+    public String getFileVersion(Long fileId, String username) {
         User user = userRepository.findByEmail(username)  // Changed from findByUsername to findByEmail
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        ProjectFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+        // Check permissions (simplified)
+
+        CollaborativeDocument document = liveDocumentStore.get(fileId);
+        if (document != null && document.isLoaded()) {
+            return document.getVersion();
+        }
+        return fileRepository.findContentHashById(fileId).orElse(null);
+    }
+
+    /**
+     * Replace the content of a file. With a {@code baseVersion} the save only goes through if
+     * the file is still at that version; otherwise it overwrites whatever is there.
+     */
+    @Transactional
+    public FileResponse updateFileContent(Long fileId, String content, String baseVersion, String username) {
+        User user = userRepository.findByEmail(username)  // Changed from findByUsername to findByEmail
+                .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Check permissions (simplified)
 
-        file.setContent(content);
-        ProjectFile savedFile = fileRepository.save(file);
-        return convertToResponse(savedFile);
+        String newContent = content != null ? content : "";
+        UnaryOperator<String> update = current -> newContent;
+
+        // Open documents are persisted by the live store's write-behind flush
+        long start = System.nanoTime();
+        LiveDocumentStore.LiveUpdate live = liveDocumentStore.updateContent(fileId, baseVersion, update);
+        if (live != null) {
+            if (!live.applied()) {
+                throw conflict(fileId, baseVersion, update, live.content(), live.version());
+            }
+            liveSaveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            liveSaveSize.record(newContent.length());
+            versionHistory.record(fileId, live.version(), newContent);
+            return convertToResponse(findSummary(fileId), newContent, live.version());
+        }
+
+        // A single conditional UPDATE; the current row is only read if it did not apply
+        String version = ContentVersion.of(newContent);
+        LocalDateTime now = LocalDateTime.now();
+        int updated = baseVersion != null
+                ? fileRepository.updateContentIfUnchanged(fileId, newContent, version, now, baseVersion)
+                : fileRepository.updateContent(fileId, newContent, version, now);
+        if (updated == 0) {
+            ProjectFile current = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new FileNotFoundException("File not found"));
+            throw conflict(fileId, baseVersion, update, current.getContent(), versionOf(current));
+        }
+        directSaveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        directSaveSize.record(newContent.length());
+        versionHistory.record(fileId, version, newContent);
+        return convertToResponse(findSummary(fileId), newContent, version);
+    }
+
+    /**
+     * Apply range edits made against {@code baseVersion} and return the new version.
+     * Throws {@link FileVersionConflictException} when the file has changed since, so
+     * the client has to rebase its edits; nothing is written in that case.
+     */
+    @Transactional
+    public FileVersionResponse patchFileContent(Long fileId, PatchFileRequest request, String username) {
+        User user = userRepository.findByEmail(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Check permissions (simplified)
+
+        String baseVersion = request.getBaseVersion();
+        UnaryOperator<String> update = current -> applyEdits(current, request.getEdits());
+
+        long start = System.nanoTime();
+        LiveDocumentStore.LiveUpdate live = liveDocumentStore.updateContent(fileId, baseVersion, update);
+        if (live != null) {
+            if (!live.applied()) {
+                throw conflict(fileId, baseVersion, update, live.content(), live.version());
+            }
+            liveSaveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            liveSaveSize.record(live.content().length());
+            versionHistory.record(fileId, live.version(), live.content());
+            return new FileVersionResponse(fileId, live.version(), live.content().length(), LocalDateTime.now());
+        }
+
+        ProjectFile file = fileRepository.findById(fileId)
+                .orElseThrow(() -> new FileNotFoundException("File not found"));
+        String currentVersion = versionOf(file);
+        if (!currentVersion.equals(baseVersion)) {
+            throw conflict(fileId, baseVersion, update, file.getContent(), currentVersion);
+        }
+        String patched = update.apply(file.getContent());
+        if (patched.equals(file.getContent())) {
+            return new FileVersionResponse(fileId, currentVersion, patched.length(), file.getUpdatedAt());
+        }
+
+        // Compare-and-set, so a save that landed since the read is not overwritten
+        String version = ContentVersion.of(patched);
+        LocalDateTime now = LocalDateTime.now();
+        if (fileRepository.updateContentIfUnchanged(fileId, patched, version, now, currentVersion) == 0) {
+            ProjectFile latest = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new FileNotFoundException("File not found"));
+            throw conflict(fileId, baseVersion, update, latest.getContent(), versionOf(latest));
+        }
+        directSaveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        directSaveSize.record(patched.length());
+        versionHistory.record(fileId, version, patched);
+        return new FileVersionResponse(fileId, version, patched.length(), now);
     }
 
     public void deleteFile(Long fileId, String username) {
@@ -96,11 +255,82 @@ public class FileService {
 
         // Check permissions (simplified)
 
+        liveDocumentStore.discard(fileId);
+        versionHistory.discard(fileId);
         fileRepository.delete(file);
     }
 
+    /**
+     * Conflict for a save of {@code update} against {@code baseVersion}, with the save merged
+     * into {@code current} as a candidate if the base content is still known.
+     */
+    private FileVersionConflictException conflict(Long fileId, String baseVersion, UnaryOperator<String> update,
+                                                  String current, String currentVersion) {
+        String message = "File has changed since version " + baseVersion;
+        String base = versionHistory.get(fileId, baseVersion);
+        if (base == null) {
+            return new FileVersionConflictException(message, currentVersion);
+        }
+        String updated;
+        try {
+            updated = update.apply(base);
+        } catch (IllegalArgumentException e) {
+            // Edits that do not fit the base still conflict, just without a candidate
+            return new FileVersionConflictException(message, currentVersion);
+        }
+        ThreeWayMerge.Result merged = ThreeWayMerge.merge(base, updated, current != null ? current : "");
+        if (merged == null) {
+            return new FileVersionConflictException(message, currentVersion);
+        }
+        return new FileVersionConflictException(message, currentVersion, merged.content(), merged.conflicts());
+    }
+
+    private String applyEdits(String content, List<PatchFileRequest.Edit> requestedEdits) {
+        String base = content != null ? content : "";
+        List<PatchFileRequest.Edit> edits = new ArrayList<>(requestedEdits);
+        edits.sort(Comparator.comparingInt(PatchFileRequest.Edit::getStart));
+        StringBuilder patched = new StringBuilder(base.length());
+        int copied = 0;
+        for (PatchFileRequest.Edit edit : edits) {
+            if (edit.getStart() < copied || edit.getEnd() < edit.getStart() || edit.getEnd() > base.length()) {
+                throw new IllegalArgumentException("Edit range [" + edit.getStart() + ", " + edit.getEnd()
+                        + ") overlaps another edit or lies outside the file");
+            }
+            patched.append(base, copied, edit.getStart());
+            patched.append(edit.getText() != null ? edit.getText() : "");
+            copied = edit.getEnd();
+        }
+        patched.append(base, copied, base.length());
+        return patched.toString();
+    }
+
+    private ProjectFileSummary findSummary(Long fileId) {
+        return fileRepository.findSummaryById(fileId)
+                .orElseThrow(() -> new FileNotFoundException("File not found"));
+    }
+
+    // Rows saved before content hashes were stored get theirs at startup; until then compute it
+    private String versionOf(ProjectFile file) {
+        return file.getContentHash() != null ? file.getContentHash() : ContentVersion.of(file.getContent());
+    }
+
+    private FileResponse convertToResponse(ProjectFileSummary summary, String content, String version) {
+        FileResponse response = new FileResponse(
+                summary.id(),
+                summary.name(),
+                summary.filePath(),
+                content,
+                summary.language(),
+                summary.createdAt(),
+                summary.updatedAt(),
+                summary.projectId()
+        );
+        response.setVersion(version);
+        return response;
+    }
+
     private FileResponse convertToResponse(ProjectFile file) {
-        return new FileResponse(
+        FileResponse response = new FileResponse(
                 file.getId(),
                 file.getName(),
                 file.getFilePath(),
@@ -110,5 +340,7 @@ public class FileService {
                 file.getUpdatedAt(),
                 file.getProject().getId()
         );
+        response.setVersion(versionOf(file));
+        return response;
     }
 }
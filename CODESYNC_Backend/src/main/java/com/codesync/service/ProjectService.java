@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import com.codesync.dto.project.CreateProjectRequest;
@@ -12,6 +13,7 @@ import com.codesync.dto.project.ProjectResponse;
 import com.codesync.entity.Project;
 import com.codesync.entity.User;
 import com.codesync.entity.UserProjectPermission;
+import com.codesync.logging.HotPathLogger;
 import com.codesync.repository.ProjectRepository;
 import com.codesync.repository.UserProjectPermissionRepository;
 import com.codesync.repository.UserRepository;
@@ -19,6 +21,8 @@ import com.codesync.repository.UserRepository;
 @Service
 public class ProjectService {
 
+    private static final HotPathLogger hotLog = HotPathLogger.getLogger(ProjectService.class);
+
     @Autowired
     private ProjectRepository projectRepository;
 
@@ -52,40 +56,27 @@ public class ProjectService {
         User user = userRepository.findByEmail(username)  // Changed from findByUsername to findByEmail
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        System.out.println("Getting projects for user: " + username + " (ID: " + user.getId() + ")");
-
         // Get all permissions for this user
         List<UserProjectPermission> userPermissions = permissionRepository.findByUserId(user.getId());
-        System.out.println("Found " + userPermissions.size() + " permissions for user");
         
         // Extract project IDs and fetch projects
         List<Long> projectIds = userPermissions.stream()
-                .map(permission -> {
-                    Long projectId = permission.getProject().getId();
-                    System.out.println("User has permission for project ID: " + projectId + " with permission: " + permission.getPermission());
-                    return projectId;
-                })
+                .map(permission -> permission.getProject().getId())
                 .collect(Collectors.toList());
         
-        System.out.println("Project IDs: " + projectIds);
-        
         if (projectIds.isEmpty()) {
-            System.out.println("No project IDs found, returning empty list");
+            hotLog.debug("No projects for user: {}", user.getId());
             return new ArrayList<>();
         }
         
         // Fetch projects by IDs
         List<Project> projects = projectRepository.findAllById(projectIds);
-        System.out.println("Found " + projects.size() + " projects");
         
         List<ProjectResponse> responses = projects.stream()
-                .map(project -> {
-                    System.out.println("Converting project: " + project.getName() + " (ID: " + project.getId() + ")");
-                    return convertToResponse(project);
-                })
+                .map(this::convertToResponse)
                 .collect(Collectors.toList());
         
-        System.out.println("Returning " + responses.size() + " project responses");
+        hotLog.debug("Returning {} projects for user: {}", responses.size(), user.getId());
         return responses;
     }
 
@@ -103,6 +94,8 @@ public class ProjectService {
         return convertToResponse(project);
     }
 
+    // The project's permissions go with it through the cascade, past the repository's eviction
+    @CacheEvict(cacheNames = "projectPermissions", allEntries = true)
     public void deleteProject(Long projectId, String username) {
         User user = userRepository.findByEmail(username)  // Changed from findByUsername to findByEmail
                 .orElseThrow(() -> new RuntimeException("User not found"));
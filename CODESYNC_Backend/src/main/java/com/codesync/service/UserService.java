@@ -2,6 +2,7 @@ package com.codesync.service;
 
 import com.codesync.entity.User;
 import com.codesync.repository.UserRepository;
+import com.codesync.security.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +15,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -31,10 +35,13 @@ public class UserService {
     }
 
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        customUserDetailsService.evictPrincipal(saved.getEmail());
+        return saved;
     }
 
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(user -> customUserDetailsService.evictPrincipal(user.getEmail()));
         userRepository.deleteById(id);
     }
 
@@ -0,0 +1,76 @@
+package com.codesync.websocket;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token bucket in front of the collaboration endpoint.
+ *
+ * After a rolling restart every client of a node reconnects at once; handshakes
+ * beyond the configured rate are turned away with 503 and a randomized
+ * Retry-After, which spreads the herd out instead of letting it pile up.
+ */
+@Component
+public class AdmissionControlInterceptor implements HandshakeInterceptor {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final int retryAfterMaxSeconds;
+    private final Counter rejected;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public AdmissionControlInterceptor(@Value("${app.collaboration.admission.permits-per-second:50}") double permitsPerSecond,
+                                       @Value("${app.collaboration.admission.burst:200}") double burst,
+                                       @Value("${app.collaboration.admission.retry-after-max-seconds:10}") int retryAfterMaxSeconds,
+                                       MeterRegistry meterRegistry) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.retryAfterMaxSeconds = retryAfterMaxSeconds;
+        this.tokens = burst;
+        this.rejected = Counter.builder("codesync.websocket.admission.rejected")
+                .description("WebSocket handshakes turned away by admission control")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set("Retry-After",
+                String.valueOf(1 + ThreadLocalRandom.current().nextInt(retryAfterMaxSeconds)));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1_000_000_000.0 * permitsPerSecond);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package com.codesync.websocket;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * A message serialized once into UTF-8 bytes and wrapped in a single immutable
+ * {@link TextMessage} that is shared by every recipient of a broadcast.
+ * Frame types with a compact binary encoding can carry a {@link BinaryMessage}
+ * as well, which is sent to sessions that negotiated the binary sub-protocol.
+ */
+public final class BroadcastFrame {
+
+    // Superseded by the next update from the same user, so safe to shed under backpressure
+    private static final Set<String> DROPPABLE_TYPES = Set.of("cursor_position", "user_typing");
+    // Only matter while they are current, so not worth replaying to a resumed session.
+    // presence_update only carries the users that changed since the last tick, so it is never shed
+    private static final Set<String> TRANSIENT_TYPES = Set.of("cursor_position", "user_typing", "presence_update");
+
+    private final String type;
+    private final TextMessage message;
+    private final int size;
+    private final byte[] binary;
+    private final BinaryMessage binaryMessage;
+
+    private BroadcastFrame(String type, TextMessage message, int size) {
+        this(type, message, size, null);
+    }
+
+    private BroadcastFrame(String type, TextMessage message, int size, byte[] binary) {
+        this.type = type;
+        this.message = message;
+        this.size = size;
+        this.binary = binary;
+        this.binaryMessage = binary != null ? new BinaryMessage(binary) : null;
+    }
+
+    public static BroadcastFrame of(String type, byte[] utf8) {
+        return new BroadcastFrame(type, new TextMessage(utf8), utf8.length);
+    }
+
+    /**
+     * Wrap a frame received from a client so it can be relayed without re-serializing it.
+     */
+    public static BroadcastFrame of(String type, TextMessage received) {
+        return new BroadcastFrame(type, received, received.getPayloadLength());
+    }
+
+    /**
+     * Relay a received JSON object with one numeric field spliced in front of its
+     * existing fields, which avoids parsing and re-serializing the whole payload.
+     */
+    public static BroadcastFrame withLeadingField(String type, TextMessage received, String field, long value) {
+        String payload = received.getPayload();
+        int open = payload.indexOf('{');
+        if (open < 0) {
+            return of(type, received);
+        }
+        String rest = payload.substring(open + 1);
+        String separator = rest.trim().startsWith("}") ? "" : ",";
+        TextMessage spliced = new TextMessage("{\"" + field + "\":" + value + separator + rest);
+        return new BroadcastFrame(type, spliced, spliced.getPayloadLength());
+    }
+
+    /**
+     * Attach the binary encoding of the same message; a null encoding leaves the frame text-only.
+     */
+    public BroadcastFrame withBinary(byte[] encoded) {
+        if (encoded == null) {
+            return this;
+        }
+        return new BroadcastFrame(type, message, size, encoded);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public TextMessage getMessage() {
+        return message;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The binary encoding, or null for text-only frames.
+     */
+    public byte[] getBinary() {
+        return binary;
+    }
+
+    /**
+     * The message to write to a session, binary if it prefers binary and this frame has an encoding.
+     */
+    public WebSocketMessage<?> getMessage(boolean preferBinary) {
+        return preferBinary && binaryMessage != null ? binaryMessage : message;
+    }
+
+    public int getSize(boolean preferBinary) {
+        return preferBinary && binaryMessage != null ? binaryMessage.getPayloadLength() : size;
+    }
+
+    /**
+     * The text message as partial messages of at most fragmentSize characters.
+     * Each part is cut only when the iteration reaches it, so frames waiting in
+     * queues or the event log hold their payload once.
+     */
+    public Iterable<TextMessage> fragments(int fragmentSize) {
+        String payload = message.getPayload();
+        return () -> new Iterator<>() {
+            private int start;
+
+            @Override
+            public boolean hasNext() {
+                return start < payload.length();
+            }
+
+            @Override
+            public TextMessage next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = Math.min(start + fragmentSize, payload.length());
+                // Never cut a surrogate pair in half
+                if (end < payload.length() && end - 1 > start && Character.isHighSurrogate(payload.charAt(end - 1))) {
+                    end--;
+                }
+                TextMessage part = new TextMessage(payload.substring(start, end), end == payload.length());
+                start = end;
+                return part;
+            }
+        };
+    }
+
+    public boolean isDroppable() {
+        return DROPPABLE_TYPES.contains(type);
+    }
+
+    public boolean isTransient() {
+        return TRANSIENT_TYPES.contains(type);
+    }
+}
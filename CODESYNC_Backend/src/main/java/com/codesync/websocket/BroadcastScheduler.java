@@ -0,0 +1,135 @@
+package com.codesync.websocket;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Dedicated threads for collaboration fan-out, kept off the common ForkJoinPool.
+ *
+ * Work for a project always runs on the same single-threaded lane, chosen by
+ * hashing the project id, so broadcasts of one project keep their order while
+ * a busy project can only saturate its own lane. A full lane makes the
+ * submitting thread wait for room rather than run the task itself, which would
+ * overtake what is already queued. Socket writes happen on a separate sender
+ * pool that drains the per-session outbound queues.
+ */
+@Component
+public class BroadcastScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastScheduler.class);
+
+    private final ThreadPoolExecutor[] lanes;
+    private final ThreadPoolExecutor senderPool;
+    private final Counter blockedSubmits;
+    private final Counter rejectedSubmits;
+
+    public BroadcastScheduler(@Value("${app.collaboration.broadcast.lanes:0}") int laneCount,
+                              @Value("${app.collaboration.broadcast.lane-queue-capacity:10000}") int laneQueueCapacity,
+                              @Value("${app.collaboration.broadcast.lane-submit-timeout-ms:5000}") long submitTimeoutMs,
+                              @Value("${app.collaboration.broadcast.sender-threads:0}") int senderThreads,
+                              MeterRegistry meterRegistry) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int laneTotal = laneCount > 0 ? laneCount : processors;
+        int senderTotal = senderThreads > 0 ? senderThreads : processors * 2;
+
+        this.blockedSubmits = Counter.builder("codesync.websocket.broadcast.lane.blocked")
+                .description("Broadcast submissions that waited for room on a full lane")
+                .register(meterRegistry);
+        this.rejectedSubmits = Counter.builder("codesync.websocket.broadcast.lane.rejected")
+                .description("Broadcast submissions refused because their lane stayed full past the timeout")
+                .register(meterRegistry);
+        RejectedExecutionHandler waitForRoom = (task, lane) -> awaitRoom(task, lane, submitTimeoutMs);
+
+        this.lanes = new ThreadPoolExecutor[laneTotal];
+        for (int i = 0; i < laneTotal; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(laneQueueCapacity), namedThreads("broadcast-lane-" + i + "-"), waitForRoom);
+            // Tasks queued by awaitRoom bypass execute(), so the worker must already be running
+            lanes[i].prestartAllCoreThreads();
+            Gauge.builder("codesync.websocket.broadcast.lane.queue", lanes[i], lane -> lane.getQueue().size())
+                    .description("Broadcast tasks waiting on a lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+
+        // Each session has at most one pending drain, so this queue is bounded by the session count
+        this.senderPool = new ThreadPoolExecutor(senderTotal, senderTotal, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("broadcast-sender-"));
+        Gauge.builder("codesync.websocket.broadcast.sender.active", senderPool, ThreadPoolExecutor::getActiveCount)
+                .description("Sender threads currently writing to sockets")
+                .register(meterRegistry);
+        Gauge.builder("codesync.websocket.broadcast.sender.queue", senderPool, pool -> pool.getQueue().size())
+                .description("Session flushes waiting for a sender thread")
+                .register(meterRegistry);
+
+        log.info("Broadcast scheduler started with {} lanes and {} sender threads", laneTotal, senderTotal);
+    }
+
+    /**
+     * Run a task on the lane owned by the given project, waiting while the lane is full.
+     *
+     * @throws RejectedExecutionException if the lane stays full past the submit timeout;
+     *         the producer should be shed instead of the task being run elsewhere
+     */
+    public void execute(String projectId, Runnable task) {
+        lanes[Math.floorMod(projectId.hashCode(), lanes.length)].execute(task);
+    }
+
+    /**
+     * Executor that outbound session queues use to drain to the socket.
+     */
+    public Executor getSenderExecutor() {
+        return senderPool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        senderPool.shutdown();
+    }
+
+    // Never drop or reorder edits: a full lane pushes back on the thread that produced the message
+    private void awaitRoom(Runnable task, ThreadPoolExecutor lane, long timeoutMs) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Broadcast lane is shut down");
+        }
+        blockedSubmits.increment();
+        try {
+            if (lane.getQueue().offer(task, timeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedSubmits.increment();
+        throw new RejectedExecutionException("Broadcast lane stayed full for " + timeoutMs + " ms");
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,165 +1,420 @@
 package com.codesync.websocket;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.codesync.collaboration.CollaborativeDocument;
+import com.codesync.collaboration.LiveDocumentStore;
+import com.codesync.collaboration.StaleRevisionException;
+import com.codesync.collaboration.TextOperation;
+import com.codesync.logging.HotPathLogger;
+import com.codesync.websocket.message.BinaryCodec;
+import com.codesync.websocket.message.CodeChangeMessage;
+import com.codesync.websocket.message.CursorPositionMessage;
+import com.codesync.websocket.message.InboundMessage;
+import com.codesync.websocket.message.MessageTypes;
+import com.codesync.websocket.message.UserTypingMessage;
+import com.codesync.websocket.relay.CollaborationRelay;
+import com.codesync.websocket.relay.ProjectAffinity;
+import com.codesync.websocket.relay.RelayMessage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
-public class CollaborationWebSocketHandler implements WebSocketHandler {
+public class CollaborationWebSocketHandler implements WebSocketHandler, SubProtocolCapable {
     
     private static final Logger log = LoggerFactory.getLogger(CollaborationWebSocketHandler.class);
+    // Per-message and per-connection events; sampled so traffic bursts do not become log bursts
+    private static final HotPathLogger hotLog = HotPathLogger.getLogger(CollaborationWebSocketHandler.class);
+    
+    public static final String JSON_SUB_PROTOCOL = "codesync.v1.json";
+    
+    // Listed in order of preference; clients that ask for no sub-protocol get JSON
+    private static final List<String> SUB_PROTOCOLS = List.of(BinaryCodec.SUB_PROTOCOL, JSON_SUB_PROTOCOL);
+    
+    private static final String RESUME_TOKEN_ATTRIBUTE = "resumeToken";
     
     private final ObjectMapper objectMapper;
+    private final ObjectReader inboundReader;
+    private final ObjectWriter inboundWriter;
+    private final LiveDocumentStore documentStore;
+    private final BroadcastScheduler broadcastScheduler;
+    private final PresenceAggregator presenceAggregator;
+    private final ProjectRoster roster;
+    private final ProjectEventLog eventLog;
+    private final ResumeRegistry resumeRegistry;
+    private final CollaborationRelay relay;
+    private final ProjectAffinity affinity;
+    private final String nodeId;
+    private final Timer broadcastTimer;
+    private final DistributionSummary broadcastBytes;
+    private final DistributionSummary broadcastRecipients;
     private final Map<String, Set<WebSocketSession>> projectSessions = new ConcurrentHashMap<>();
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, OutboundSessionQueue> sessions = new ConcurrentHashMap<>();
+    private final Map<String, InboundMessageAssembler> assemblers = new ConcurrentHashMap<>();
+    // Bytes held by partially received messages of all sessions
+    private final AtomicLong inboundBufferedBytes = new AtomicLong();
+    // projectId -> other nodes that forward edits for a project owned here
+    private final Map<String, Set<String>> remoteNodes = new ConcurrentHashMap<>();
+    private final Counter droppedFrames;
+    private final Counter terminatedSessions;
+    // type -> inbound counter; anything else a client sends is counted as "other"
+    private final Map<String, Counter> inboundMessages = new HashMap<>();
+    private final Counter otherInboundMessages;
+    
+    private final OutboundSessionQueue.Listener outboundListener = new OutboundSessionQueue.Listener() {
+        @Override
+        public void onDropped(BroadcastFrame frame) {
+            droppedFrames.increment();
+        }
+        
+        @Override
+        public void onTerminated(OutboundSessionQueue queue) {
+            terminatedSessions.increment();
+        }
+    };
+    
+    @Value("${app.collaboration.outbound.buffer-size-limit:524288}")
+    private int outboundBufferSizeLimit;
+    
+    @Value("${app.collaboration.outbound.send-time-limit-ms:5000}")
+    private long sendTimeLimitMs;
+    
+    @Value("${app.collaboration.outbound.fragment-size:65536}")
+    private int outboundFragmentSize;
+    
+    @Value("${app.collaboration.inbound.max-message-size:16777216}")
+    private int inboundMaxMessageSize;
     
-    public CollaborationWebSocketHandler() {
+    @Value("${app.collaboration.inbound.max-buffered-bytes:67108864}")
+    private long inboundMaxBufferedBytes;
+    
+    public CollaborationWebSocketHandler(LiveDocumentStore documentStore, BroadcastScheduler broadcastScheduler,
+                                         PresenceAggregator presenceAggregator, ProjectRoster roster,
+                                         ProjectEventLog eventLog, ResumeRegistry resumeRegistry, CollaborationRelay relay,
+                                         ProjectAffinity affinity, MeterRegistry meterRegistry) {
         this.objectMapper = new ObjectMapper();
+        this.inboundReader = objectMapper.readerFor(InboundMessage.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.inboundWriter = objectMapper.writerFor(InboundMessage.class);
+        this.documentStore = documentStore;
+        this.broadcastScheduler = broadcastScheduler;
+        this.presenceAggregator = presenceAggregator;
+        this.roster = roster;
+        this.eventLog = eventLog;
+        this.resumeRegistry = resumeRegistry;
+        this.relay = relay;
+        this.affinity = affinity;
+        this.nodeId = affinity.getNodeId();
+        this.broadcastTimer = Timer.builder("codesync.websocket.broadcast.latency")
+                .description("Time to fan a broadcast out to every recipient of a project")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.broadcastBytes = DistributionSummary.builder("codesync.websocket.broadcast.bytes")
+                .description("Serialized size of each broadcast frame, allocated once per broadcast")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.broadcastRecipients = DistributionSummary.builder("codesync.websocket.broadcast.recipients")
+                .description("Sessions that received each broadcast frame")
+                .register(meterRegistry);
+        this.droppedFrames = Counter.builder("codesync.websocket.outbound.dropped")
+                .description("Droppable frames shed from full outbound queues")
+                .register(meterRegistry);
+        this.terminatedSessions = Counter.builder("codesync.websocket.outbound.terminated")
+                .description("Sessions closed for exceeding the outbound buffer or send-time limit")
+                .register(meterRegistry);
+        Gauge.builder("codesync.websocket.outbound.queue.depth", sessions,
+                        queues -> queues.values().stream().mapToInt(OutboundSessionQueue::getQueueDepth).sum())
+                .description("Frames waiting in all outbound session queues")
+                .register(meterRegistry);
+        Gauge.builder("codesync.websocket.inbound.buffered.bytes", inboundBufferedBytes, AtomicLong::get)
+                .description("Bytes held by partially received messages of all sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (String type : MessageTypes.ALL) {
+            inboundMessages.put(type, inboundCounter(meterRegistry, type));
+        }
+        this.otherInboundMessages = inboundCounter(meterRegistry, "other");
+        // Per-project tags would grow without bound, so projects are summarized
+        Gauge.builder("codesync.websocket.sessions.active", sessions, Map::size)
+                .description("Open collaboration sessions on this node")
+                .register(meterRegistry);
+        Gauge.builder("codesync.websocket.projects.active", projectSessions, Map::size)
+                .description("Projects with at least one session on this node")
+                .register(meterRegistry);
+        Gauge.builder("codesync.websocket.project.sessions.max", projectSessions,
+                        projects -> projects.values().stream().mapToInt(Set::size).max().orElse(0))
+                .description("Sessions in the busiest project on this node")
+                .register(meterRegistry);
+        relay.connect(nodeId, this::onRelayMessage);
+        documentStore.setResetListener(this::onDocumentReset);
     }
     
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        log.info("WebSocket connection established: {}", session.getId());
-        
-        String projectId = getProjectIdFromSession(session);
-        String userId = getUserIdFromSession(session);
-        String userName = getUserNameFromSession(session);
         
-        if (projectId == null) {
-            log.error("Project ID is null for session: {}", session.getId());
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            log.error("No session context for session: {}", session.getId());
             session.close(CloseStatus.BAD_DATA.withReason("Missing project ID"));
             return;
         }
+        String projectId = context.projectId();
+        String userId = context.userId();
+        String userName = context.userName();
         
-        sessions.put(session.getId(), session);
-        projectSessions.computeIfAbsent(projectId, k -> new CopyOnWriteArraySet<>()).add(session);
-        log.info("User joined project: {} with session: {} (userId: {}, userName: {})", projectId, session.getId(), userId, userName);
+        sessions.put(session.getId(), new OutboundSessionQueue(session, outboundBufferSizeLimit, sendTimeLimitMs,
+                outboundFragmentSize, broadcastScheduler.getSenderExecutor(), outboundListener, isBinary(session)));
+        assemblers.put(session.getId(), new InboundMessageAssembler(inboundMaxMessageSize, inboundBufferedBytes,
+                inboundMaxBufferedBytes));
         
-        // First, send existing users to the new user
-        Set<WebSocketSession> existingSessions = projectSessions.get(projectId);
-        if (existingSessions != null && existingSessions.size() > 1) {
-            log.info("*** SENDING EXISTING USERS TO NEW USER *** Total sessions: {}", existingSessions.size());
-            
-            for (WebSocketSession existingSession : existingSessions) {
-                if (!existingSession.getId().equals(session.getId())) {
-                    String existingUserId = getUserIdFromSession(existingSession);
-                    String existingUserName = getUserNameFromSession(existingSession);
-                    
-                    log.info("*** EXISTING USER FOUND: ID={}, Name={} ***", existingUserId, existingUserName);
-                    
-                    if (existingUserId != null && existingUserName != null) {
-                        // Create existing user data
-                        Map<String, Object> existingUserData = new HashMap<>();
-                        existingUserData.put("id", Integer.parseInt(existingUserId));
-                        existingUserData.put("name", existingUserName);
-                        existingUserData.put("fullName", existingUserName);
-                        existingUserData.put("userName", existingUserName);
-                        existingUserData.put("color", generateUserColor(existingUserId));
-                        
-                        // Send existing user info to new user
-                        CollaborationMessage existingUserMessage = new CollaborationMessage();
-                        existingUserMessage.setType("user_joined");
-                        existingUserMessage.setProjectId(projectId);
-                        existingUserMessage.setUserId(existingUserId);
-                        existingUserMessage.setContent("User joined the collaboration");
-                        existingUserMessage.setTimestamp(System.currentTimeMillis());
-                        
-                        Map<String, Object> existingMessageData = new HashMap<>();
-                        existingMessageData.put("user", existingUserData);
-                        existingUserMessage.setData(existingMessageData);
-                        
-                        // Send only to the new user
-                        try {
-                            String messageJson = objectMapper.writeValueAsString(existingUserMessage);
-                            session.sendMessage(new TextMessage(messageJson));
-                            log.info("*** SENT EXISTING USER {} TO NEW USER {} ***", existingUserName, userName);
-                        } catch (Exception e) {
-                            log.error("Error sending existing user to new user", e);
-                        }
-                    }
-                }
+        // Binary frames carry no sequence numbers, so only JSON sessions can resume
+        String resumeToken = isBinary(session) ? null : getQueryParameter(session, "resumeToken");
+        if (resumeToken != null) {
+            ResumeRegistry.Ticket ticket = resumeRegistry.claim(resumeToken, projectId, userId);
+            if (ticket != null) {
+                resume(session, projectId, userId, ticket, parseSeq(getQueryParameter(session, "lastSeq")));
+                return;
             }
         }
         
-        // Send user_joined message with full user data for the new user
-        CollaborationMessage welcomeMessage = new CollaborationMessage();
-        welcomeMessage.setType("user_joined");
-        welcomeMessage.setProjectId(projectId);
-        welcomeMessage.setUserId(userId);
-        welcomeMessage.setContent("User joined the collaboration");
-        welcomeMessage.setTimestamp(System.currentTimeMillis());
-        
-        // Create user object with all necessary data
-        Map<String, Object> userData = new HashMap<>();
-        userData.put("id", Integer.parseInt(userId)); // Convert to number to match frontend
-        userData.put("name", userName);
-        userData.put("fullName", userName);
-        userData.put("userName", userName);
-        userData.put("color", generateUserColor(userId));
+        addProjectSession(projectId, session);
+        hotLog.info("User {} joined project {} with session {}", userId, projectId, session.getId());
         
-        // Debug the user data being created
-        log.info("Created user data: {}", userData);
+        // One snapshot of everyone present, including the joiner, instead of a frame per user
+        boolean firstSession = roster.join(projectId, userId, userData(userId, userName));
+        String token = isBinary(session) ? null : issueResumeToken(session, projectId, userId);
+        broadcastScheduler.execute(projectId, () -> sendUsersList(projectId, session, token));
         
-        Map<String, Object> messageData = new HashMap<>();
-        messageData.put("user", userData);
-        welcomeMessage.setData(messageData);
+        // Another tab of a user who is already present is not news to anyone
+        if (firstSession) {
+            CollaborationMessage joinMessage = new CollaborationMessage();
+            joinMessage.setType("user_joined");
+            joinMessage.setProjectId(projectId);
+            joinMessage.setUserId(userId);
+            joinMessage.setContent("User joined the collaboration");
+            joinMessage.setTimestamp(System.currentTimeMillis());
+            
+            Map<String, Object> messageData = new HashMap<>();
+            messageData.put("user", userData(userId, userName));
+            joinMessage.setData(messageData);
+            
+            broadcastToProject(projectId, joinMessage, session.getId());
+        }
+    }
+    
+    // Take over the place of a dropped session and replay only the events it missed
+    private void resume(WebSocketSession session, String projectId, String userId, ResumeRegistry.Ticket ticket, long lastSeq) {
+        hotLog.info("Resuming session {} as {} in project: {}", ticket.sessionId(), session.getId(), projectId);
+        String token = issueResumeToken(session, projectId, userId);
+        broadcastScheduler.execute(projectId, () -> {
+            // Reading the log and registering on the lane leaves no gap and no duplicate
+            List<BroadcastFrame> missed = eventLog.since(projectId, lastSeq, ticket.sessionId());
+            addProjectSession(projectId, session);
+            if (missed == null) {
+                // Too far behind for the log: start over from a snapshot
+                sendUsersList(projectId, session, token);
+                return;
+            }
+            Map<String, Object> resumed = new HashMap<>();
+            resumed.put("type", "session_resumed");
+            resumed.put("projectId", projectId);
+            resumed.put("resumeToken", token);
+            resumed.put("seq", eventLog.currentSeq(projectId));
+            resumed.put("missed", missed.size());
+            BroadcastFrame frame = serialize("session_resumed", resumed);
+            if (frame != null) {
+                send(session, frame);
+            }
+            for (BroadcastFrame missedFrame : missed) {
+                send(session, missedFrame);
+            }
+        });
+    }
+    
+    // Runs on the project's lane so the sequence number matches what the session receives next
+    private void sendUsersList(String projectId, WebSocketSession session, String resumeToken) {
+        Map<String, Object> usersList = new HashMap<>();
+        usersList.put("type", "users_list");
+        usersList.put("projectId", projectId);
+        usersList.put("users", roster.snapshot(projectId));
+        usersList.put("seq", eventLog.currentSeq(projectId));
+        if (resumeToken != null) {
+            usersList.put("resumeToken", resumeToken);
+        }
+        usersList.put("timestamp", System.currentTimeMillis());
+        BroadcastFrame frame = serialize("users_list", usersList);
+        if (frame != null) {
+            send(session, frame);
+        }
+    }
+    
+    private void addProjectSession(String projectId, WebSocketSession session) {
+        projectSessions.computeIfAbsent(projectId, k -> {
+            // First local session of the project: start receiving its traffic from other nodes
+            relay.subscribe(nodeId, k);
+            return new CopyOnWriteArraySet<>();
+        }).add(session);
+    }
+    
+    private String issueResumeToken(WebSocketSession session, String projectId, String userId) {
+        String token = resumeRegistry.issue(projectId, userId, session.getId());
+        session.getAttributes().put(RESUME_TOKEN_ATTRIBUTE, token);
+        return token;
+    }
+    
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        InboundMessageAssembler assembler = assemblers.get(session.getId());
+        if (assembler == null) {
+            return;
+        }
+        try {
+            if (message instanceof TextMessage textMessage) {
+                TextMessage complete = assembler.append(textMessage);
+                if (complete != null) {
+                    handleTextMessage(session, complete);
+                }
+            } else if (message instanceof BinaryMessage binaryMessage) {
+                BinaryMessage complete = assembler.append(binaryMessage);
+                if (complete != null) {
+                    handleBinaryMessage(session, complete);
+                }
+            }
+        } catch (InboundMessageAssembler.MessageTooLargeException e) {
+            log.warn("Closing session {}: {}", session.getId(), e.getMessage());
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+        } catch (InboundMessageAssembler.BufferBudgetExceededException e) {
+            log.warn("Closing session {}: {}", session.getId(), e.getMessage());
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+        } catch (RejectedExecutionException e) {
+            // The project's lane is stuck; shed this producer rather than reorder or drop its edits
+            log.warn("Closing session {}: {}", session.getId(), e.getMessage());
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+        }
+    }
+    
+    private void handleTextMessage(WebSocketSession session, TextMessage textMessage) throws Exception {
+        String payload = textMessage.getPayload();
+        MessageTypes.Sniffed sniffed = MessageTypes.sniff(objectMapper.getFactory(), payload);
+        String type = sniffed.type();
+        String projectId = SessionContext.of(session).projectId();
+        countInbound(type);
         
-        // Debug log the message being sent
-        log.info("Sending user_joined message: {}", welcomeMessage);
-        log.info("User data: {}", userData);
+        if (sniffed.serverFields()) {
+            // Relayed frames keep the client's fields, so a forged seq would make receivers skip later events
+            hotLog.warn("Ignoring {} with server-assigned fields from session {}", type, session.getId());
+            return;
+        }
+        if (MessageTypes.FILE_SAVED.equals(type) && !SessionContext.of(session).canWrite()) {
+            rejectWrite(session, type, projectId);
+            return;
+        }
+        if (MessageTypes.isRelayOnly(type)) {
+            // Forward the client's frame as-is, without a parse/serialize round trip
+            hotLog.debug("Relaying {} for project: {}", type, projectId);
+            broadcast(projectId, BroadcastFrame.of(type, textMessage), session.getId());
+            return;
+        }
         
-        // Broadcast to all users in the project (including self for initial user list)
-        broadcastToProject(projectId, welcomeMessage, null); // Don't exclude anyone
+        InboundMessage inbound;
+        try {
+            inbound = inboundReader.readValue(payload);
+        } catch (InvalidTypeIdException e) {
+            hotLog.warn("Unknown message type {} from session {}", type, session.getId());
+            return;
+        }
+        dispatch(session, inbound, textMessage, projectId);
+    }
+    
+    private void handleBinaryMessage(WebSocketSession session, BinaryMessage binaryMessage) {
+        InboundMessage inbound;
+        try {
+            inbound = BinaryCodec.decode(binaryMessage.getPayload());
+        } catch (IllegalArgumentException e) {
+            hotLog.warn("Ignoring malformed binary frame from session {}: {}", session.getId(), e.getMessage());
+            return;
+        }
+        countInbound(inbound instanceof CodeChangeMessage ? MessageTypes.CODE_CHANGE
+                : inbound instanceof CursorPositionMessage ? MessageTypes.CURSOR_POSITION : MessageTypes.USER_TYPING);
+        dispatch(session, inbound, null, SessionContext.of(session).projectId());
     }
     
     @Override
-    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-        if (message instanceof TextMessage) {
-            String payload = ((TextMessage) message).getPayload();
-            @SuppressWarnings("unchecked")
-            Map<String, Object> messageData = objectMapper.readValue(payload, Map.class);
-            
-            String type = (String) messageData.get("type");
-            String projectId = getProjectIdFromSession(session);
-            
-            switch (type) {
-                case "code_change":
-                    handleCodeChange(session, messageData, projectId);
-                    break;
-                case "cursor_position":
-                    handleCursorPosition(session, messageData, projectId);
-                    break;
-                case "file_selection":
-                    handleFileSelection(session, messageData, projectId);
-                    break;
-                case "user_typing":
-                    handleUserTyping(session, messageData, projectId);
-                    break;
-                case "file_saved":
-                    handleFileSaved(session, messageData, projectId);
-                    break;
-                case "chat_message":
-                    handleChatMessage(session, messageData, projectId);
-                    break;
-                default:
-                    log.warn("Unknown message type: {}", type);
+    public List<String> getSubProtocols() {
+        return SUB_PROTOCOLS;
+    }
+    
+    // raw is the received text frame, or null for binary frames, which always carry an operation
+    private void dispatch(WebSocketSession session, InboundMessage inbound, TextMessage raw, String projectId) {
+        if (inbound instanceof CodeChangeMessage codeChange) {
+            if (!SessionContext.of(session).canWrite() && !codeChange.isSyncRequest()) {
+                rejectWrite(session, MessageTypes.CODE_CHANGE, projectId);
+            } else if (affinity.isLocal(projectId)) {
+                handleCodeChange(session.getId(), SessionContext.of(session).userId(), codeChange, raw, projectId,
+                        frame -> sendToSession(projectId, session, frame));
+            } else {
+                forwardToOwner(session, codeChange, raw, projectId);
             }
+        } else if (inbound instanceof CursorPositionMessage cursorPosition) {
+            handleCursorPosition(session, cursorPosition, projectId);
+        } else if (inbound instanceof UserTypingMessage userTyping) {
+            handleUserTyping(session, userTyping, projectId);
         }
     }
     
+    // The permission was resolved at handshake time, so this is an in-memory check
+    private void rejectWrite(WebSocketSession session, String type, String projectId) {
+        hotLog.debug("Rejecting {} from read-only session {} in project: {}", type, session.getId(), projectId);
+        BroadcastFrame frame = permissionDenied(projectId, type, "Write permission required");
+        if (frame != null) {
+            sendToSession(projectId, session, frame);
+        }
+    }
+    
+    private BroadcastFrame permissionDenied(String projectId, String type, String reason) {
+        Map<String, Object> denied = new HashMap<>();
+        denied.put("type", "permission_denied");
+        denied.put("projectId", projectId);
+        denied.put("messageType", type);
+        denied.put("content", reason);
+        return serialize("permission_denied", denied);
+    }
+    
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("WebSocket transport error for session: {}", session.getId(), exception);
@@ -167,198 +422,423 @@ public class CollaborationWebSocketHandler implements WebSocketHandler {
     
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-        log.info("WebSocket connection closed: {} with status: {}", session.getId(), closeStatus);
+        hotLog.info("WebSocket connection closed: {} with status: {}", session.getId(), closeStatus);
         
-        String projectId = getProjectIdFromSession(session);
-        sessions.remove(session.getId());
-        if (projectId != null) {
-            Set<WebSocketSession> projectSessionSet = projectSessions.get(projectId);
-            if (projectSessionSet != null) {
-                projectSessionSet.remove(session);
-                if (projectSessionSet.isEmpty()) {
-                    projectSessions.remove(projectId);
-                }
-                
-                // Notify other users that this user left
-                CollaborationMessage leaveMessage = new CollaborationMessage();
-                leaveMessage.setType("user_left");
-                leaveMessage.setProjectId(projectId);
-                leaveMessage.setUserId(getUserIdFromSession(session));
-                leaveMessage.setContent("User left the collaboration");
-                leaveMessage.setTimestamp(System.currentTimeMillis());
-                
-                broadcastToProject(projectId, leaveMessage, session.getId());
+        SessionContext context = SessionContext.of(session);
+        OutboundSessionQueue outbound = sessions.remove(session.getId());
+        if (outbound != null) {
+            outbound.close();
+        }
+        InboundMessageAssembler assembler = assemblers.remove(session.getId());
+        if (assembler != null) {
+            assembler.discard();
+        }
+        if (context == null) {
+            return;
+        }
+        String projectId = context.projectId();
+        projectSessions.computeIfPresent(projectId, (id, projectSessionSet) -> {
+            projectSessionSet.remove(session);
+            return projectSessionSet.isEmpty() ? null : projectSessionSet;
+        });
+        
+        String userId = context.userId();
+        String sessionId = session.getId();
+        String token = (String) session.getAttributes().get(RESUME_TOKEN_ATTRIBUTE);
+        if (token == null) {
+            completeLeave(projectId, userId, sessionId);
+        } else if (CloseStatus.NORMAL.equalsCode(closeStatus)) {
+            // A deliberate close will not come back
+            if (resumeRegistry.revoke(token, sessionId)) {
+                completeLeave(projectId, userId, sessionId);
+            } else {
+                releaseIfIdle(projectId);
             }
+        } else if (!resumeRegistry.release(token, sessionId, () -> completeLeave(projectId, userId, sessionId))) {
+            // Already taken over by a resumed session, which keeps the user's place
+            releaseIfIdle(projectId);
+        }
+    }
+    
+    private void completeLeave(String projectId, String userId, String sessionId) {
+        // Notify other users once the user's last session is gone
+        if (roster.leave(projectId, userId)) {
+            presenceAggregator.remove(projectId, userId);
+            CollaborationMessage leaveMessage = new CollaborationMessage();
+            leaveMessage.setType("user_left");
+            leaveMessage.setProjectId(projectId);
+            leaveMessage.setUserId(userId);
+            leaveMessage.setContent("User left the collaboration");
+            leaveMessage.setTimestamp(System.currentTimeMillis());
+            
+            broadcastToProject(projectId, leaveMessage, sessionId);
+        }
+        releaseIfIdle(projectId);
+    }
+    
+    // Once nobody is connected here and nobody can resume, stop following the project
+    private void releaseIfIdle(String projectId) {
+        if (projectSessions.containsKey(projectId) || resumeRegistry.hasPending(projectId)) {
+            return;
+        }
+        relay.unsubscribe(nodeId, projectId);
+        eventLog.drop(projectId);
+        if (affinity.isLocal(projectId)) {
+            releaseIfUnused(projectId);
+        } else {
+            relay.send(affinity.ownerOf(projectId), new RelayMessage(RelayMessage.Kind.RELEASE,
+                    nodeId, projectId, null, null, null, null, null));
         }
     }
     
     @Override
     public boolean supportsPartialMessages() {
-        return false;
+        // Large messages arrive in container-buffer sized parts and are joined per session
+        return true;
     }
     
-    private void handleCodeChange(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        log.debug("Handling code change for project: {}", projectId);
-        // Broadcast code changes to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    // Runs on the project's owner node; reply delivers frames meant only for the sending session
+    private void handleCodeChange(String sessionId, String userId, CodeChangeMessage codeChange, TextMessage raw,
+                                  String projectId, Consumer<BroadcastFrame> reply) {
+        hotLog.debug("Handling code change for project: {}", projectId);
+        if (codeChange.fileId() == null) {
+            hotLog.warn("Ignoring code change without file ID from session {} in project {}", sessionId, projectId);
+            return;
+        }
+        CollaborativeDocument document = documentStore.getOrCreate(projectId, codeChange.fileId());
+        if (document == null) {
+            // Only files of the session's own project can be edited through it
+            hotLog.warn("Rejecting code change for file {} outside project {}", codeChange.fileId(), projectId);
+            BroadcastFrame frame = permissionDenied(projectId, MessageTypes.CODE_CHANGE, "File is not part of this project");
+            if (frame != null) {
+                reply.accept(frame);
+            }
+            return;
+        }
+
+        // Held until the frames are queued, so the project's lane carries revisions in order
+        synchronized (document) {
+            if (!codeChange.isDelta()) {
+                // Legacy clients send the whole file body; it becomes the new base for later deltas
+                if (codeChange.content() != null) {
+                    long revision = document.reset(codeChange.content());
+                    broadcast(projectId, BroadcastFrame.withLeadingField(MessageTypes.CODE_CHANGE, raw, "revision",
+                            revision), sessionId);
+                } else {
+                    broadcast(projectId, BroadcastFrame.of(MessageTypes.CODE_CHANGE, raw), sessionId);
+                }
+                return;
+            }
+
+            if (codeChange.isSyncRequest()) {
+                BroadcastFrame frame = resyncFrame(document);
+                if (frame != null) {
+                    reply.accept(frame);
+                }
+                return;
+            }
+
+            try {
+                if (codeChange.revision() == null) {
+                    throw new IllegalArgumentException("Missing base revision");
+                }
+                TextOperation operation = TextOperation.fromJson(codeChange.operation());
+                CollaborativeDocument.AppliedOperation applied = document.apply(codeChange.revision(), operation);
+
+                // Everyone else only gets the transformed delta, the sender just needs the new revision
+                List<Object> components = applied.operation().toJson();
+                Map<String, Object> delta = new HashMap<>();
+                delta.put("type", MessageTypes.CODE_CHANGE);
+                delta.put("projectId", projectId);
+                delta.put("fileId", document.getFileId());
+                delta.put("userId", userId);
+                delta.put("revision", applied.revision());
+                delta.put("operation", components);
+                delta.put("timestamp", System.currentTimeMillis());
+                BroadcastFrame deltaFrame = serialize(MessageTypes.CODE_CHANGE, delta);
+                if (deltaFrame != null) {
+                    broadcast(projectId, deltaFrame.withBinary(BinaryCodec.encodeCodeChange(
+                            document.getFileId(), applied.revision(), userId, components)), sessionId);
+                }
+
+                Map<String, Object> ack = new HashMap<>();
+                ack.put("type", "code_change_ack");
+                ack.put("fileId", document.getFileId());
+                ack.put("revision", applied.revision());
+                BroadcastFrame ackFrame = serialize("code_change_ack", ack);
+                if (ackFrame != null) {
+                    reply.accept(ackFrame.withBinary(BinaryCodec.encodeAck(document.getFileId(), applied.revision())));
+                }
+            } catch (StaleRevisionException | IllegalArgumentException e) {
+                hotLog.warn("Rejecting code change from session {}: {}", sessionId, e.getMessage());
+                BroadcastFrame frame = resyncFrame(document);
+                if (frame != null) {
+                    reply.accept(frame);
+                }
+            }
+        }
     }
     
-    private void handleCursorPosition(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        // Broadcast cursor position to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    private BroadcastFrame resyncFrame(CollaborativeDocument document) {
+        Map<String, Object> resync = new HashMap<>();
+        resync.put("type", "resync_required");
+        resync.put("fileId", document.getFileId());
+        resync.put("revision", document.getRevision());
+        resync.put("content", document.getContent());
+        return serialize("resync_required", resync);
     }
     
-    private void handleFileSelection(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        // Broadcast file selection to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    private void handleCursorPosition(WebSocketSession session, CursorPositionMessage cursorPosition, String projectId) {
+        // Coalesced and sent with the next presence_update
+        SessionContext context = SessionContext.of(session);
+        presenceAggregator.updateCursor(projectId, context.userId(), context.userName(), cursorPosition);
     }
     
-    private void handleUserTyping(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        // Broadcast user typing to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    private void handleUserTyping(WebSocketSession session, UserTypingMessage userTyping, String projectId) {
+        // Coalesced and sent with the next presence_update
+        SessionContext context = SessionContext.of(session);
+        presenceAggregator.updateTyping(projectId, context.userId(), context.userName(), userTyping);
     }
     
-    private void handleFileSaved(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        log.debug("Handling file saved for project: {}", projectId);
-        // Broadcast file saved event to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    // A REST save replaced an open file; editors must drop their pending operations and take the new text
+    private void onDocumentReset(CollaborativeDocument document, String content, long revision) {
+        String projectId = document.getProjectId();
+        Map<String, Object> resync = new HashMap<>();
+        resync.put("type", "resync_required");
+        resync.put("projectId", projectId);
+        resync.put("fileId", document.getFileId());
+        resync.put("revision", revision);
+        resync.put("content", content);
+        resync.put("timestamp", System.currentTimeMillis());
+        BroadcastFrame frame = serialize("resync_required", resync);
+        if (frame == null) {
+            return;
+        }
+        try {
+            broadcast(projectId, frame, null);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not announce reset of file {} in project {}: {}", document.getFileId(), projectId,
+                    e.getMessage());
+        }
     }
     
-    private void handleChatMessage(WebSocketSession session, Map<String, Object> messageData, String projectId) {
-        log.debug("Handling chat message for project: {}", projectId);
-        // Broadcast chat message to all users in the same project except sender
-        broadcastToProject(projectId, messageData, session.getId());
+    @Scheduled(fixedRateString = "${app.collaboration.presence-tick-ms:40}")
+    public void flushPresence() {
+        presenceAggregator.drain().forEach((projectId, users) -> {
+            Map<String, Object> update = new HashMap<>();
+            update.put("type", "presence_update");
+            update.put("projectId", projectId);
+            update.put("users", users);
+            update.put("timestamp", System.currentTimeMillis());
+            // Senders get their own entry back too; clients skip their own user id
+            BroadcastFrame frame = serialize("presence_update", update);
+            if (frame == null) {
+                return;
+            }
+            try {
+                broadcast(projectId, frame.withBinary(BinaryCodec.encodePresence(users)), null);
+            } catch (RejectedExecutionException e) {
+                // One stuck lane must not hold up the presence of every other project
+                hotLog.warn("Skipping presence tick for project {}: {}", projectId, e.getMessage());
+            }
+        });
     }
     
     private void broadcastToProject(String projectId, Map<String, Object> message, String excludeSessionId) {
-        Set<WebSocketSession> currentProjectSessions = projectSessions.get(projectId);
-        if (currentProjectSessions != null) {
-            String messageJson;
-            try {
-                messageJson = objectMapper.writeValueAsString(message);
-            } catch (Exception e) {
-                log.error("Error serializing message", e);
-                return;
-            }
-            
-            currentProjectSessions.parallelStream()
-                    .filter(session -> !session.getId().equals(excludeSessionId))
-                    .filter(WebSocketSession::isOpen)
-                    .forEach(session -> {
-                        try {
-                            session.sendMessage(new TextMessage(messageJson));
-                        } catch (Exception e) {
-                            log.error("Error sending message to session: {}", session.getId(), e);
-                        }
-                    });
+        BroadcastFrame frame = serialize(String.valueOf(message.get("type")), message);
+        if (frame != null) {
+            broadcast(projectId, frame, excludeSessionId);
         }
     }
     
     private void broadcastToProject(String projectId, CollaborationMessage message, String excludeSessionId) {
-        Set<WebSocketSession> currentProjectSessions = projectSessions.get(projectId);
-        log.info("Broadcasting message type '{}' to project {} with {} sessions", message.getType(), projectId, 
-                currentProjectSessions != null ? currentProjectSessions.size() : 0);
-        
-        if (currentProjectSessions != null) {
-            String messageJson;
-            try {
-                messageJson = objectMapper.writeValueAsString(message);
-                log.info("Message JSON: {}", messageJson);
-            } catch (Exception e) {
-                log.error("Error serializing message", e);
-                return;
-            }
-            
-            currentProjectSessions.parallelStream()
-                    .filter(session -> excludeSessionId == null || !session.getId().equals(excludeSessionId))
-                    .filter(WebSocketSession::isOpen)
-                    .forEach(session -> {
-                        try {
-                            log.info("Sending message to session: {}", session.getId());
-                            session.sendMessage(new TextMessage(messageJson));
-                        } catch (Exception e) {
-                            log.error("Error sending message to session: {}", session.getId(), e);
-                        }
-                    });
-        }
-    }
-    
-    private String getProjectIdFromSession(WebSocketSession session) {
-        // Extract project ID from session attributes or URI parameters
-        Object projectId = session.getAttributes().get("projectId");
-        if (projectId != null) {
-            return projectId.toString();
+        BroadcastFrame frame = serialize(message.getType(), message);
+        if (frame != null) {
+            hotLog.debug("Broadcasting {} to project {} ({} bytes)", message.getType(), projectId, frame.getSize());
+            broadcast(projectId, frame, excludeSessionId);
         }
-        
-        // Fallback: try to extract from URI path (e.g., /ws/collaboration/1)
-        if (session.getUri() != null) {
-            String uri = session.getUri().toString();
-            
-            // First try query parameter
-            if (uri.contains("projectId=")) {
-                int start = uri.indexOf("projectId=") + 10;
-                int end = uri.indexOf("&", start);
-                if (end == -1) end = uri.length();
-                return uri.substring(start, end);
-            }
-            
-            // Then try to extract from path (e.g., /ws/collaboration/1)
-            if (uri.contains("/ws/collaboration/")) {
-                int start = uri.lastIndexOf("/ws/collaboration/") + 18;
-                int end = uri.indexOf("?", start);
-                if (end == -1) end = uri.length();
-                String pathSegment = uri.substring(start, end);
-                if (!pathSegment.isEmpty() && pathSegment.matches("\\d+")) {
-                    return pathSegment;
+    }
+    
+    // Serialize once; the resulting frame is shared by every recipient
+    private BroadcastFrame serialize(String type, Object message) {
+        try {
+            return BroadcastFrame.of(type, objectMapper.writeValueAsBytes(message));
+        } catch (Exception e) {
+            log.error("Error serializing message", e);
+            return null;
+        }
+    }
+    
+    private void broadcast(String projectId, BroadcastFrame frame, String excludeSessionId) {
+        // Fan-out runs on the project's lane so broadcasts of one project stay in order
+        broadcastScheduler.execute(projectId, () -> deliver(projectId, frame, excludeSessionId));
+        relay.publish(new RelayMessage(RelayMessage.Kind.BROADCAST, nodeId, projectId, excludeSessionId, null,
+                frame.getType(), frame.getMessage().getPayload(), frame.getBinary()));
+    }
+    
+    private void forwardToOwner(WebSocketSession session, CodeChangeMessage codeChange, TextMessage raw, String projectId) {
+        try {
+            String text = raw != null ? raw.getPayload() : inboundWriter.writeValueAsString(codeChange);
+            relay.send(affinity.ownerOf(projectId), new RelayMessage(RelayMessage.Kind.FORWARD, nodeId, projectId,
+                    session.getId(), SessionContext.of(session).userId(), MessageTypes.CODE_CHANGE, text, null));
+        } catch (Exception e) {
+            log.error("Error forwarding code change for project: {}", projectId, e);
+        }
+    }
+    
+    private void onRelayMessage(RelayMessage message) {
+        String projectId = message.projectId();
+        switch (message.kind()) {
+            case BROADCAST -> {
+                if (!trackRemoteMember(message)) {
+                    // Another session of the user is still here, or was already, so nobody's list changes
+                    return;
                 }
+                BroadcastFrame frame = BroadcastFrame.of(message.type(), new TextMessage(message.text()))
+                        .withBinary(message.binary());
+                broadcastScheduler.execute(projectId, () -> deliver(projectId, frame, message.sessionId()));
+            }
+            case DIRECT -> {
+                BroadcastFrame frame = BroadcastFrame.of(message.type(), new TextMessage(message.text()))
+                        .withBinary(message.binary());
+                broadcastScheduler.execute(projectId, () -> {
+                    OutboundSessionQueue outbound = sessions.get(message.sessionId());
+                    if (outbound != null) {
+                        outbound.send(frame);
+                    }
+                });
+            }
+            case FORWARD -> handleForwarded(message);
+            case RELEASE -> {
+                remoteNodes.computeIfPresent(projectId, (id, nodes) -> {
+                    nodes.remove(message.originNode());
+                    return nodes.isEmpty() ? null : nodes;
+                });
+                releaseIfUnused(projectId);
             }
         }
-        
-        return "1"; // Default project ID if not found
     }
     
-    private String getUserIdFromSession(WebSocketSession session) {
-        Object userId = session.getAttributes().get("userId");
-        if (userId != null) {
-            return userId.toString();
+    // Keep the roster complete with users whose sessions live on other nodes.
+    // Returns false for a roster change that did not change who is present here
+    private boolean trackRemoteMember(RelayMessage message) {
+        if (!"user_joined".equals(message.type()) && !"user_left".equals(message.type())) {
+            return true;
         }
-        
-        // Fallback: try to extract from URI query parameters
-        if (session.getUri() != null) {
-            String uri = session.getUri().toString();
-            if (uri.contains("userId=")) {
-                int start = uri.indexOf("userId=") + 7;
-                int end = uri.indexOf("&", start);
-                if (end == -1) end = uri.length();
-                return uri.substring(start, end);
+        try {
+            JsonNode event = objectMapper.readTree(message.text());
+            String userId = event.path("userId").asText();
+            if ("user_joined".equals(message.type())) {
+                Map<String, Object> user = objectMapper.convertValue(event.path("data").path("user"),
+                        new TypeReference<Map<String, Object>>() {});
+                return roster.join(message.projectId(), userId, user);
             }
+            return roster.leave(message.projectId(), userId);
+        } catch (Exception e) {
+            log.error("Error reading relayed roster change for project: {}", message.projectId(), e);
+            return false;
         }
-        
-        return "anonymous";
     }
     
-    private String getUserNameFromSession(WebSocketSession session) {
-        Object userName = session.getAttributes().get("userName");
-        if (userName != null) {
-            return userName.toString();
+    private void handleForwarded(RelayMessage message) {
+        String projectId = message.projectId();
+        remoteNodes.computeIfAbsent(projectId, id -> ConcurrentHashMap.newKeySet()).add(message.originNode());
+        try {
+            if (inboundReader.readValue(message.text()) instanceof CodeChangeMessage codeChange) {
+                handleCodeChange(message.sessionId(), message.userId(), codeChange, new TextMessage(message.text()),
+                        projectId, frame -> relay.send(message.originNode(), new RelayMessage(RelayMessage.Kind.DIRECT,
+                                nodeId, projectId, message.sessionId(), null, frame.getType(),
+                                frame.getMessage().getPayload(), frame.getBinary())));
+            }
+        } catch (Exception e) {
+            log.error("Error handling forwarded message for project: {}", projectId, e);
+        }
+    }
+    
+    // Live documents stay on the owner while any node still has sessions in the project
+    private void releaseIfUnused(String projectId) {
+        if (!projectSessions.containsKey(projectId) && !remoteNodes.containsKey(projectId)) {
+            documentStore.releaseProject(projectId);
+        }
+    }
+    
+    // Runs on the project's lane: number the frame in the event log, then fan it out
+    private void deliver(String projectId, BroadcastFrame frame, String excludeSessionId) {
+        if (!projectSessions.containsKey(projectId) && !resumeRegistry.hasPending(projectId)) {
+            return;
+        }
+        fanOut(projectId, eventLog.append(projectId, frame, excludeSessionId), excludeSessionId);
+    }
+    
+    private void fanOut(String projectId, BroadcastFrame frame, String excludeSessionId) {
+        Set<WebSocketSession> currentProjectSessions = projectSessions.get(projectId);
+        if (currentProjectSessions == null) {
+            return;
         }
         
-        // Fallback: try to extract from URI query parameters
-        if (session.getUri() != null) {
-            String uri = session.getUri().toString();
-            if (uri.contains("userName=")) {
-                int start = uri.indexOf("userName=") + 9;
-                int end = uri.indexOf("&", start);
-                if (end == -1) end = uri.length();
-                try {
-                    return java.net.URLDecoder.decode(uri.substring(start, end), "UTF-8");
-                } catch (Exception e) {
-                    log.error("Error decoding userName from URI", e);
-                }
+        long start = System.nanoTime();
+        int recipients = 0;
+        for (WebSocketSession session : currentProjectSessions) {
+            if ((excludeSessionId == null || !session.getId().equals(excludeSessionId))
+                    && session.isOpen() && send(session, frame)) {
+                recipients++;
             }
         }
         
-        return "Anonymous";
+        broadcastTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        broadcastBytes.record(frame.getSize());
+        broadcastRecipients.record(recipients);
+    }
+    
+    private boolean send(WebSocketSession session, BroadcastFrame frame) {
+        OutboundSessionQueue outbound = sessions.get(session.getId());
+        return outbound != null && outbound.send(frame);
+    }
+    
+    // Direct replies share the project's lane so they stay ordered with its broadcasts
+    private void sendToSession(String projectId, WebSocketSession session, BroadcastFrame frame) {
+        broadcastScheduler.execute(projectId, () -> send(session, frame));
+    }
+    
+    private void countInbound(String type) {
+        inboundMessages.getOrDefault(type, otherInboundMessages).increment();
+    }
+    
+    private static Counter inboundCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("codesync.websocket.inbound.messages")
+                .description("Messages received from clients, by type")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+    
+    private boolean isBinary(WebSocketSession session) {
+        return BinaryCodec.SUB_PROTOCOL.equals(session.getAcceptedProtocol());
+    }
+    
+    private String getQueryParameter(WebSocketSession session, String name) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(name);
+    }
+    
+    private long parseSeq(String seq) {
+        try {
+            return seq != null ? Long.parseLong(seq) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private Map<String, Object> userData(String userId, String userName) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        // Numeric ids go out as numbers to match the frontend's user objects
+        user.put("id", userId.matches("\\d+") ? (Object) Long.valueOf(userId) : userId);
+        user.put("name", userName);
+        user.put("fullName", userName);
+        user.put("userName", userName);
+        user.put("color", generateUserColor(userId));
+        return user;
     }
     
     private String generateUserColor(String userId) {
@@ -0,0 +1,64 @@
+package com.codesync.websocket;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.standard.ServerEndpointRegistration;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.Extension;
+
+/**
+ * Upgrade strategy that lets us switch permessage-deflate off.
+ *
+ * Tomcat negotiates its installed extensions with the client on its own, so
+ * filtering the extension list in the handshake handler is not enough; the
+ * endpoint configuration has to refuse the extension during negotiation.
+ * Tomcat compresses every message of a connection that negotiated deflate and
+ * has no size threshold, so compression can only be switched on or off.
+ */
+public class CompressionAwareUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean compressionEnabled;
+
+    public CompressionAwareUpgradeStrategy(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    @Override
+    protected void upgradeInternal(ServerHttpRequest request, ServerHttpResponse response, String selectedProtocol,
+                                   List<Extension> selectedExtensions, Endpoint endpoint) throws HandshakeFailureException {
+        HttpServletRequest servletRequest = getHttpServletRequest(request);
+        HttpServletResponse servletResponse = getHttpServletResponse(response);
+
+        ServerEndpointRegistration endpointConfig = new ServerEndpointRegistration(servletRequest.getRequestURI(), endpoint) {
+            @Override
+            public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+                List<Extension> negotiated = super.getNegotiatedExtensions(installed, requested);
+                if (compressionEnabled) {
+                    return negotiated;
+                }
+                return negotiated.stream()
+                        .filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName()))
+                        .toList();
+            }
+        };
+        endpointConfig.setSubprotocols(Collections.singletonList(selectedProtocol));
+        endpointConfig.setExtensions(selectedExtensions);
+
+        try {
+            upgradeHttpToWebSocket(servletRequest, servletResponse, endpointConfig, Collections.emptyMap());
+        } catch (Exception e) {
+            throw new HandshakeFailureException(
+                    "Servlet request failed to upgrade to WebSocket: " + servletRequest.getRequestURL(), e);
+        }
+    }
+}
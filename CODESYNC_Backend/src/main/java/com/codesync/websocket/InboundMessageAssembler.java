@@ -0,0 +1,114 @@
+package com.codesync.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+/**
+ * Joins the fragments of one session's inbound messages.
+ *
+ * The container hands over a message in buffer-sized parts once it is larger
+ * than its buffer, so the container never has to size that buffer for the
+ * biggest file. The parts are still joined here in full before the message is
+ * parsed, so every partial message counts against the session's limit and
+ * against a budget shared by all sessions of the node; whichever runs out
+ * first ends the session. Messages of a session are delivered one at a time,
+ * so no locking is needed apart from the shared counter.
+ */
+public class InboundMessageAssembler {
+
+    private final int maxMessageSize;
+    private final AtomicLong bufferedBytes;
+    private final long maxBufferedBytes;
+
+    private StringBuilder text;
+    private ByteArrayOutputStream binary;
+    private long reserved;
+
+    /**
+     * @param bufferedBytes    bytes held by partial messages of all sessions, shared between assemblers
+     * @param maxBufferedBytes limit for {@code bufferedBytes}
+     */
+    public InboundMessageAssembler(int maxMessageSize, AtomicLong bufferedBytes, long maxBufferedBytes) {
+        this.maxMessageSize = maxMessageSize;
+        this.bufferedBytes = bufferedBytes;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Add a part and return the complete message once its last part arrived, otherwise null.
+     */
+    public TextMessage append(TextMessage part) {
+        if (text == null) {
+            if (part.isLast()) {
+                // Unfragmented message, nothing to copy
+                return part;
+            }
+            text = new StringBuilder(part.getPayloadLength() * 2);
+        }
+        reserve(text.length(), part.getPayloadLength());
+        text.append(part.getPayload());
+        if (!part.isLast()) {
+            return null;
+        }
+        TextMessage complete = new TextMessage(text);
+        discard();
+        return complete;
+    }
+
+    public BinaryMessage append(BinaryMessage part) {
+        if (binary == null) {
+            if (part.isLast()) {
+                return part;
+            }
+            binary = new ByteArrayOutputStream(part.getPayloadLength() * 2);
+        }
+        reserve(binary.size(), part.getPayloadLength());
+        byte[] bytes = new byte[part.getPayloadLength()];
+        part.getPayload().duplicate().get(bytes);
+        binary.writeBytes(bytes);
+        if (!part.isLast()) {
+            return null;
+        }
+        BinaryMessage complete = new BinaryMessage(binary.toByteArray());
+        discard();
+        return complete;
+    }
+
+    /**
+     * Drop a partially received message and give its bytes back, e.g. when the session closes.
+     */
+    public void discard() {
+        text = null;
+        binary = null;
+        bufferedBytes.addAndGet(-reserved);
+        reserved = 0;
+    }
+
+    private void reserve(int buffered, int partLength) {
+        if (buffered + partLength > maxMessageSize) {
+            discard();
+            throw new MessageTooLargeException("Message exceeds the limit of " + maxMessageSize);
+        }
+        if (bufferedBytes.addAndGet(partLength) > maxBufferedBytes) {
+            bufferedBytes.addAndGet(-partLength);
+            discard();
+            throw new BufferBudgetExceededException("Partial messages of all sessions exceed " + maxBufferedBytes);
+        }
+        reserved += partLength;
+    }
+
+    public static class MessageTooLargeException extends RuntimeException {
+        public MessageTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    public static class BufferBudgetExceededException extends RuntimeException {
+        public BufferBudgetExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.codesync.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Bounded send buffer in front of one {@link WebSocketSession}.
+ *
+ * Callers never wait for a slow client: a frame is queued and a single drain
+ * task on the sender executor writes it out. When the buffer overflows,
+ * droppable frames (cursor and typing updates) are shed oldest first; if only
+ * edits are left the session is closed instead of silently losing them. A session whose current
+ * send has been blocked longer than the send-time limit is closed as well.
+ * Sessions on the binary sub-protocol are sent a frame's binary encoding when it has one.
+ * Text frames above the fragment size go out as a run of partial messages; a
+ * single drain owns the session, so the parts of one frame are never interleaved.
+ */
+public class OutboundSessionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundSessionQueue.class);
+
+    private final WebSocketSession session;
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMs;
+    private final Executor senderExecutor;
+    private final Listener listener;
+    private final boolean binary;
+    private final int fragmentSize;
+
+    private final Deque<BroadcastFrame> queue = new ArrayDeque<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private int bufferSize;
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+
+    public OutboundSessionQueue(WebSocketSession session, int bufferSizeLimit, long sendTimeLimitMs,
+                                int fragmentSize, Executor senderExecutor, Listener listener, boolean binary) {
+        this.session = session;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.fragmentSize = fragmentSize;
+        this.senderExecutor = senderExecutor;
+        this.listener = listener;
+        this.binary = binary;
+    }
+
+    /**
+     * Queue a frame and make sure a drain is scheduled.
+     * Returns false if the session is gone or had to be closed.
+     */
+    public boolean send(BroadcastFrame frame) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+
+        boolean overflow;
+        synchronized (queue) {
+            queue.addLast(frame);
+            bufferSize += frame.getSize(binary);
+            // A lone frame is always accepted, so one large file snapshot does not close the session
+            overflow = bufferSize > bufferSizeLimit && !shedDroppable() && queue.size() > 1;
+        }
+        if (overflow) {
+            terminate("Outbound buffer limit " + bufferSizeLimit + " bytes exceeded");
+            return false;
+        }
+
+        scheduleDrain();
+
+        long started = sendStartTime;
+        if (started > 0 && System.currentTimeMillis() - started > sendTimeLimitMs) {
+            terminate("Send time limit " + sendTimeLimitMs + " ms exceeded");
+            return false;
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (queue) {
+            queue.clear();
+            bufferSize = 0;
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            senderExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            BroadcastFrame frame;
+            while (!closed && (frame = poll()) != null) {
+                WebSocketMessage<?> message = frame.getMessage(binary);
+                if (message instanceof TextMessage && fragmentSize > 0 && frame.getSize() > fragmentSize) {
+                    for (TextMessage part : frame.fragments(fragmentSize)) {
+                        write(part);
+                    }
+                } else {
+                    write(message);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error sending message to session: {}", session.getId(), e);
+            terminate("Send failed");
+        } finally {
+            sendStartTime = 0;
+            drainScheduled.set(false);
+        }
+        // A frame queued after the last poll but before the flag was cleared still needs a drain
+        if (!closed && getQueueDepth() > 0) {
+            scheduleDrain();
+        }
+    }
+
+    private void write(WebSocketMessage<?> message) throws Exception {
+        sendStartTime = System.currentTimeMillis();
+        session.sendMessage(message);
+        sendStartTime = 0;
+    }
+
+    private BroadcastFrame poll() {
+        synchronized (queue) {
+            BroadcastFrame frame = queue.pollFirst();
+            if (frame != null) {
+                bufferSize -= frame.getSize(binary);
+            }
+            return frame;
+        }
+    }
+
+    // Called with the queue monitor held; returns true if the buffer is back under its limit
+    private boolean shedDroppable() {
+        Iterator<BroadcastFrame> frames = queue.iterator();
+        while (bufferSize > bufferSizeLimit && frames.hasNext()) {
+            BroadcastFrame frame = frames.next();
+            if (frame.isDroppable()) {
+                frames.remove();
+                bufferSize -= frame.getSize(binary);
+                listener.onDropped(frame);
+            }
+        }
+        return bufferSize <= bufferSizeLimit;
+    }
+
+    private void terminate(String reason) {
+        if (closed) {
+            return;
+        }
+        close();
+        log.warn("Closing slow WebSocket session {}: {}", session.getId(), reason);
+        listener.onTerminated(this);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            log.debug("Error closing session: {}", session.getId(), e);
+        }
+    }
+
+    public interface Listener {
+
+        void onDropped(BroadcastFrame frame);
+
+        void onTerminated(OutboundSessionQueue queue);
+    }
+}
@@ -0,0 +1,82 @@
+package com.codesync.websocket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.codesync.websocket.message.CursorPositionMessage;
+import com.codesync.websocket.message.UserTypingMessage;
+
+/**
+ * Coalesces cursor and typing events between presence ticks.
+ *
+ * Only the latest state per user is kept, so a burst of cursor moves turns
+ * into a single entry of the next {@code presence_update} frame for the project.
+ */
+@Component
+public class PresenceAggregator {
+
+    // projectId -> userId -> pending presence entry
+    private final Map<String, Map<String, Map<String, Object>>> pending = new ConcurrentHashMap<>();
+
+    public void updateCursor(String projectId, String userId, String userName, CursorPositionMessage message) {
+        update(projectId, userId, userName != null ? userName : message.userName(),
+                message.timestamp(), entry -> {
+                    entry.put("fileId", message.fileId());
+                    entry.put("line", message.line());
+                    entry.put("column", message.column());
+                });
+    }
+
+    public void updateTyping(String projectId, String userId, String userName, UserTypingMessage message) {
+        update(projectId, userId, userName != null ? userName : message.userName(),
+                message.timestamp(), entry -> {
+                    entry.put("fileId", message.fileId());
+                    entry.put("isTyping", message.isTyping());
+                });
+    }
+
+    /**
+     * Forget a user's pending state, e.g. when they leave the project.
+     */
+    public void remove(String projectId, String userId) {
+        pending.computeIfPresent(projectId, (id, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    /**
+     * Take every pending entry, grouped by project, and start the next tick empty.
+     */
+    public Map<String, List<Map<String, Object>>> drain() {
+        Map<String, List<Map<String, Object>>> batches = new LinkedHashMap<>();
+        for (String projectId : pending.keySet()) {
+            Map<String, Map<String, Object>> users = pending.remove(projectId);
+            if (users != null && !users.isEmpty()) {
+                batches.put(projectId, new ArrayList<>(users.values()));
+            }
+        }
+        return batches;
+    }
+
+    private void update(String projectId, String userId, String userName, Long timestamp,
+                        Consumer<Map<String, Object>> fields) {
+        // compute() keeps the update atomic with respect to drain() removing the project's map
+        pending.compute(projectId, (id, users) -> {
+            Map<String, Map<String, Object>> projectUsers = users != null ? users : new LinkedHashMap<>();
+            Map<String, Object> entry = projectUsers.computeIfAbsent(userId, key -> new LinkedHashMap<>());
+            // Always the authenticated id; a client must not be able to move someone else's cursor
+            entry.put("userId", userId);
+            entry.put("userName", userName);
+            fields.accept(entry);
+            entry.put("timestamp", timestamp != null ? timestamp : System.currentTimeMillis());
+            return projectUsers;
+        });
+    }
+}
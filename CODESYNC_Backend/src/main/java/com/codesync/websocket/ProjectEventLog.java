@@ -0,0 +1,113 @@
+package com.codesync.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recent broadcasts of each project, numbered with a per-project sequence.
+ *
+ * Every logged frame gets its {@code "seq"} spliced in before fan-out, so a
+ * client that briefly lost its connection can resume from the last number it
+ * saw and receive only what it missed. Presence frames are not logged; the
+ * next tick replaces them anyway. Appends happen on the project's broadcast
+ * lane, which keeps the numbering in delivery order.
+ *
+ * Each project's log is bounded by entry count and by total frame size, so a
+ * few full-content saves cannot pin megabytes per project. A session that
+ * missed an evicted frame gets a fresh snapshot instead of a replay.
+ */
+@Component
+public class ProjectEventLog {
+
+    private final int capacity;
+    private final long maxBytes;
+    private final Map<String, ProjectLog> logs = new ConcurrentHashMap<>();
+
+    public ProjectEventLog(@Value("${app.collaboration.resume.log-size:1000}") int capacity,
+                           @Value("${app.collaboration.resume.log-max-bytes:4194304}") long maxBytes) {
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Number and store a frame. Returns the frame to send, which carries its sequence number.
+     */
+    public BroadcastFrame append(String projectId, BroadcastFrame frame, String excludeSessionId) {
+        if (frame.isTransient()) {
+            return frame;
+        }
+        ProjectLog log = logs.computeIfAbsent(projectId, id -> new ProjectLog());
+        synchronized (log) {
+            long seq = ++log.seq;
+            BroadcastFrame numbered = BroadcastFrame.withLeadingField(frame.getType(), frame.getMessage(), "seq", seq)
+                    .withBinary(frame.getBinary());
+            Entry entry = new Entry(seq, numbered, excludeSessionId);
+            log.entries.addLast(entry);
+            log.bytes += entry.bytes();
+            // A frame larger than the whole budget evicts itself too; resuming past it means a snapshot
+            while (!log.entries.isEmpty() && (log.entries.size() > capacity || log.bytes > maxBytes)) {
+                log.bytes -= log.entries.removeFirst().bytes();
+            }
+            return numbered;
+        }
+    }
+
+    public long currentSeq(String projectId) {
+        ProjectLog log = logs.get(projectId);
+        if (log == null) {
+            return 0;
+        }
+        synchronized (log) {
+            return log.seq;
+        }
+    }
+
+    /**
+     * Frames after lastSeq, leaving out the ones the given session sent itself.
+     * Returns null if some of them are no longer in the log.
+     */
+    public List<BroadcastFrame> since(String projectId, long lastSeq, String senderSessionId) {
+        ProjectLog log = logs.get(projectId);
+        if (log == null) {
+            return lastSeq == 0 ? List.of() : null;
+        }
+        synchronized (log) {
+            long oldest = log.entries.isEmpty() ? log.seq + 1 : log.entries.peekFirst().seq();
+            if (lastSeq > log.seq || lastSeq < oldest - 1) {
+                return null;
+            }
+            List<BroadcastFrame> missed = new ArrayList<>();
+            for (Entry entry : log.entries) {
+                if (entry.seq() > lastSeq && !senderSessionId.equals(entry.excludeSessionId())) {
+                    missed.add(entry.frame());
+                }
+            }
+            return missed;
+        }
+    }
+
+    public void drop(String projectId) {
+        logs.remove(projectId);
+    }
+
+    private static final class ProjectLog {
+        private long seq;
+        private long bytes;
+        private final Deque<Entry> entries = new ArrayDeque<>();
+    }
+
+    private record Entry(long seq, BroadcastFrame frame, String excludeSessionId) {
+
+        long bytes() {
+            byte[] binary = frame.getBinary();
+            return frame.getSize() + (binary != null ? binary.length : 0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.codesync.websocket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Users present in each project, maintained incrementally as sessions come and go.
+ *
+ * A user is counted once per session (several tabs, or sessions on other
+ * nodes), so join and leave report whether the user actually appeared or
+ * disappeared. A joiner gets the whole roster in one {@code users_list} frame.
+ */
+@Component
+public class ProjectRoster {
+
+    // projectId -> userId -> member, in join order
+    private final Map<String, Map<String, Member>> projects = new ConcurrentHashMap<>();
+
+    /**
+     * Count a session of the user. Returns true if the user was not present yet.
+     */
+    public boolean join(String projectId, String userId, Map<String, Object> user) {
+        boolean[] added = new boolean[1];
+        projects.compute(projectId, (id, members) -> {
+            Map<String, Member> projectMembers = members != null ? members : new LinkedHashMap<>();
+            Member member = projectMembers.get(userId);
+            if (member == null) {
+                projectMembers.put(userId, new Member(Collections.unmodifiableMap(new LinkedHashMap<>(user))));
+                added[0] = true;
+            } else {
+                member.sessions++;
+            }
+            return projectMembers;
+        });
+        return added[0];
+    }
+
+    /**
+     * Release a session of the user. Returns true if it was the user's last one.
+     */
+    public boolean leave(String projectId, String userId) {
+        boolean[] removed = new boolean[1];
+        projects.computeIfPresent(projectId, (id, members) -> {
+            Member member = members.get(userId);
+            if (member != null && --member.sessions == 0) {
+                members.remove(userId);
+                removed[0] = true;
+            }
+            return members.isEmpty() ? null : members;
+        });
+        return removed[0];
+    }
+
+    public List<Map<String, Object>> snapshot(String projectId) {
+        List<Map<String, Object>> users = new ArrayList<>();
+        projects.computeIfPresent(projectId, (id, members) -> {
+            for (Member member : members.values()) {
+                users.add(member.user);
+            }
+            return members;
+        });
+        return users;
+    }
+
+    private static final class Member {
+        private final Map<String, Object> user;
+        private int sessions = 1;
+
+        private Member(Map<String, Object> user) {
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.codesync.websocket;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resume tokens handed out to collaboration sessions.
+ *
+ * A token stays valid while its session is open and for a grace period after
+ * it dropped. A reconnect that presents it within that window takes over the
+ * old session's place: the user never leaves the roster and only the events
+ * it missed are replayed. When the grace period runs out the leave completes.
+ */
+@Component
+public class ResumeRegistry {
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> expiries = new ConcurrentHashMap<>();
+    private final TaskScheduler taskScheduler;
+    private final Duration gracePeriod;
+
+    public ResumeRegistry(TaskScheduler taskScheduler,
+                          @Value("${app.collaboration.resume.grace-period-ms:15000}") long gracePeriodMs) {
+        this.taskScheduler = taskScheduler;
+        this.gracePeriod = Duration.ofMillis(gracePeriodMs);
+    }
+
+    public String issue(String projectId, String userId, String sessionId) {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(token, new Ticket(token, projectId, userId, sessionId));
+        return token;
+    }
+
+    /**
+     * Take over a ticket for a reconnecting session. Returns null if the token is
+     * unknown, expired or was issued for a different project or user.
+     */
+    public Ticket claim(String token, String projectId, String userId) {
+        Ticket ticket = tickets.get(token);
+        if (ticket == null || !ticket.projectId().equals(projectId) || !ticket.userId().equals(userId)
+                || !tickets.remove(token, ticket)) {
+            return null;
+        }
+        ScheduledFuture<?> expiry = expiries.remove(token);
+        if (expiry != null) {
+            expiry.cancel(false);
+        }
+        return ticket;
+    }
+
+    /**
+     * Start the grace period of a closed session's ticket and run onExpiry if nobody
+     * claims it in time. Returns false if the ticket was already taken over by a new session.
+     */
+    public boolean release(String token, String sessionId, Runnable onExpiry) {
+        Ticket ticket = token != null ? tickets.get(token) : null;
+        if (ticket == null || !ticket.sessionId().equals(sessionId)) {
+            return false;
+        }
+        expiries.put(token, taskScheduler.schedule(() -> {
+            expiries.remove(token);
+            if (tickets.remove(token, ticket)) {
+                onExpiry.run();
+            }
+        }, Instant.now().plus(gracePeriod)));
+        return true;
+    }
+
+    /**
+     * Drop a ticket right away, e.g. after a deliberate close.
+     */
+    public boolean revoke(String token, String sessionId) {
+        Ticket ticket = token != null ? tickets.get(token) : null;
+        return ticket != null && ticket.sessionId().equals(sessionId) && tickets.remove(token, ticket);
+    }
+
+    /**
+     * Whether a closed session of the project may still come back.
+     */
+    public boolean hasPending(String projectId) {
+        for (String token : expiries.keySet()) {
+            Ticket ticket = tickets.get(token);
+            if (ticket != null && ticket.projectId().equals(projectId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public record Ticket(String token, String projectId, String userId, String sessionId) {
+    }
+}
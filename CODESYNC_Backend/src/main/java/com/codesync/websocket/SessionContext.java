@@ -0,0 +1,27 @@
+package com.codesync.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import com.codesync.entity.UserProjectPermission;
+
+/**
+ * Identity of a collaboration session, authenticated and resolved once during
+ * the handshake by {@link SessionIdentityInterceptor}.
+ *
+ * The permission is the one the user held on the project when the session was
+ * opened, so checks on inbound messages never go back to the database.
+ */
+public record SessionContext(String projectId, String userId, String userName,
+                             UserProjectPermission.Permission permission) {
+
+    public static final String ATTRIBUTE = SessionContext.class.getName();
+
+    public static SessionContext of(WebSocketSession session) {
+        return (SessionContext) session.getAttributes().get(ATTRIBUTE);
+    }
+
+    public boolean canWrite() {
+        return permission == UserProjectPermission.Permission.WRITE
+                || permission == UserProjectPermission.Permission.ADMIN;
+    }
+}
@@ -0,0 +1,144 @@
+package com.codesync.websocket;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.codesync.entity.User;
+import com.codesync.entity.UserProjectPermission;
+import com.codesync.logging.HotPathLogger;
+import com.codesync.repository.UserProjectPermissionRepository;
+import com.codesync.repository.UserRepository;
+import com.codesync.security.JwtTokenProvider;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Authenticates the {@code /ws/collaboration/{projectId}} handshake and stores
+ * the resolved user and project permission as a {@link SessionContext}.
+ *
+ * Browsers cannot set headers on a WebSocket upgrade, so the JWT is read from
+ * the {@code token} query parameter, or from a bearer Authorization header for
+ * other clients. The user and permission are loaded here once per connection;
+ * the handler only ever consults the cached context.
+ */
+@Component
+public class SessionIdentityInterceptor implements HandshakeInterceptor {
+
+    // Rejections come in floods when clients retry with a stale token
+    private static final HotPathLogger hotLog = HotPathLogger.getLogger(SessionIdentityInterceptor.class);
+
+    private static final int MAX_USER_NAME_LENGTH = 64;
+
+    private final JwtTokenProvider tokenProvider;
+    private final UserRepository userRepository;
+    private final UserProjectPermissionRepository permissionRepository;
+
+    public SessionIdentityInterceptor(JwtTokenProvider tokenProvider, UserRepository userRepository,
+                                      UserProjectPermissionRepository permissionRepository) {
+        this.tokenProvider = tokenProvider;
+        this.userRepository = userRepository;
+        this.permissionRepository = permissionRepository;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        UriComponents uri = UriComponentsBuilder.fromUri(request.getURI()).build(true);
+        String projectId = uri.getPathSegments().isEmpty() ? null
+                : uri.getPathSegments().get(uri.getPathSegments().size() - 1);
+        if (projectId == null || !isNumeric(projectId)) {
+            hotLog.warn("Rejecting WebSocket handshake without a valid project ID: {}", request.getURI().getPath());
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+
+        Claims claims = tokenProvider.parseClaims(getToken(request, uri));
+        if (claims == null) {
+            hotLog.warn("Rejecting unauthenticated WebSocket handshake for project: {}", projectId);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        String username = claims.getSubject();
+        Optional<User> user = userRepository.findByEmail(username)
+                .or(() -> userRepository.findByUsername(username));
+        if (user.isEmpty()) {
+            hotLog.warn("Rejecting WebSocket handshake for unknown user: {}", username);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        Optional<UserProjectPermission> permission =
+                permissionRepository.findByUserIdAndProjectId(user.get().getId(), Long.valueOf(projectId));
+        if (permission.isEmpty()) {
+            hotLog.warn("Rejecting WebSocket handshake of user {} without access to project: {}",
+                    user.get().getId(), projectId);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        attributes.put(SessionContext.ATTRIBUTE, new SessionContext(
+                projectId,
+                user.get().getId().toString(),
+                displayName(user.get()),
+                permission.get().getPermission()));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String getToken(ServerHttpRequest request, UriComponents uri) {
+        String token = uri.getQueryParams().getFirst("token");
+        if (StringUtils.hasText(token)) {
+            return decode(token);
+        }
+        String bearerToken = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+
+    private String displayName(User user) {
+        String name = StringUtils.hasText(user.getFullName()) ? user.getFullName() : user.getUsername();
+        if (!StringUtils.hasText(name)) {
+            return "Anonymous";
+        }
+        String trimmed = name.trim();
+        return trimmed.length() > MAX_USER_NAME_LENGTH ? trimmed.substring(0, MAX_USER_NAME_LENGTH) : trimmed;
+    }
+
+    private String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static boolean isNumeric(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        // Anything longer cannot be a project id and would not fit a Long
+        return !value.isEmpty() && value.length() <= 18;
+    }
+}
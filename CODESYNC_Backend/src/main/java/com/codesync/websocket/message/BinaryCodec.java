@@ -0,0 +1,210 @@
+package com.codesync.websocket.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary layout for the high-volume collaboration messages, used by
+ * sessions that negotiate the {@value #SUB_PROTOCOL} sub-protocol.
+ *
+ * Every frame starts with a one byte opcode; numbers are big-endian and file
+ * ids are the numeric ids of the files. An operation is a component count
+ * followed by components: a non-zero int is a retain (positive) or delete
+ * (negative), a zero is followed by the length and UTF-8 bytes of an insert.
+ *
+ * <pre>
+ * CURSOR       0x01 fileId:i64 line:i32 column:i32
+ * TYPING       0x02 fileId:i64 typing:u8
+ * CODE_CHANGE  0x03 fileId:i64 revision:i64 operation           (client to server)
+ * CODE_CHANGE  0x03 fileId:i64 revision:i64 userId:str operation (server to client)
+ * ACK          0x04 fileId:i64 revision:i64
+ * PRESENCE     0x05 count:u16 { flags:u8 userId:str fileId:i64 [line:i32 column:i32] [typing:u8] }
+ * </pre>
+ *
+ * Strings are a u8 length and UTF-8 bytes. In presence entries flag 0x01 marks
+ * cursor fields and 0x02 the typing flag. Everything else stays JSON text, and
+ * so does a message whose strings do not fit: cutting them short could split a
+ * character or change an id.
+ */
+public final class BinaryCodec {
+
+    public static final String SUB_PROTOCOL = "codesync.v1.binary";
+
+    public static final byte OP_CURSOR = 0x01;
+    public static final byte OP_TYPING = 0x02;
+    public static final byte OP_CODE_CHANGE = 0x03;
+    public static final byte OP_ACK = 0x04;
+    public static final byte OP_PRESENCE = 0x05;
+
+    private static final int PRESENCE_CURSOR = 0x01;
+    private static final int PRESENCE_TYPING = 0x02;
+    private static final int MAX_STRING_BYTES = 255;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Decode a frame sent by a client. Throws IllegalArgumentException if it is malformed.
+     */
+    public static InboundMessage decode(ByteBuffer frame) {
+        ByteBuffer in = frame.asReadOnlyBuffer();
+        try {
+            byte opcode = in.get();
+            String fileId = String.valueOf(in.getLong());
+            InboundMessage message = switch (opcode) {
+                case OP_CURSOR -> new CursorPositionMessage(fileId, in.getInt(), in.getInt(), null, null, null);
+                case OP_TYPING -> new UserTypingMessage(fileId, in.get() != 0, null, null, null);
+                case OP_CODE_CHANGE -> new CodeChangeMessage(fileId, in.getLong(), readOperation(in), null);
+                default -> throw new IllegalArgumentException("Unknown binary opcode: " + opcode);
+            };
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes in binary frame");
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary frame", e);
+        }
+    }
+
+    /**
+     * Encode a transformed edit for other clients. Returns null if the file id is not
+     * numeric or the user id is too long.
+     */
+    public static byte[] encodeCodeChange(String fileId, long revision, String userId, List<Object> operation) {
+        Long id = parseFileId(fileId);
+        byte[] user = stringBytes(userId);
+        if (id == null || user == null) {
+            return null;
+        }
+        return write(out -> {
+            out.writeByte(OP_CODE_CHANGE);
+            out.writeLong(id);
+            out.writeLong(revision);
+            writeString(out, user);
+            out.writeInt(operation.size());
+            for (Object component : operation) {
+                if (component instanceof String text) {
+                    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(0);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                } else {
+                    out.writeInt(((Number) component).intValue());
+                }
+            }
+        });
+    }
+
+    public static byte[] encodeAck(String fileId, long revision) {
+        Long id = parseFileId(fileId);
+        if (id == null) {
+            return null;
+        }
+        return write(out -> {
+            out.writeByte(OP_ACK);
+            out.writeLong(id);
+            out.writeLong(revision);
+        });
+    }
+
+    /**
+     * Encode the entries of a presence tick. Returns null if an entry cannot be represented.
+     */
+    public static byte[] encodePresence(List<Map<String, Object>> users) {
+        List<byte[]> userIds = new ArrayList<>(users.size());
+        for (Map<String, Object> entry : users) {
+            byte[] userId = stringBytes(String.valueOf(entry.get("userId")));
+            if (parseFileId(entry.get("fileId")) == null || userId == null) {
+                return null;
+            }
+            userIds.add(userId);
+        }
+        return write(out -> {
+            out.writeByte(OP_PRESENCE);
+            out.writeShort(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                Map<String, Object> entry = users.get(i);
+                boolean cursor = entry.get("line") instanceof Number && entry.get("column") instanceof Number;
+                boolean typing = entry.get("isTyping") instanceof Boolean;
+                out.writeByte((cursor ? PRESENCE_CURSOR : 0) | (typing ? PRESENCE_TYPING : 0));
+                writeString(out, userIds.get(i));
+                out.writeLong(parseFileId(entry.get("fileId")));
+                if (cursor) {
+                    out.writeInt(((Number) entry.get("line")).intValue());
+                    out.writeInt(((Number) entry.get("column")).intValue());
+                }
+                if (typing) {
+                    out.writeByte((Boolean) entry.get("isTyping") ? 1 : 0);
+                }
+            }
+        });
+    }
+
+    private static List<Object> readOperation(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Invalid operation length: " + count);
+        }
+        List<Object> operation = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = in.getInt();
+            if (n != 0) {
+                operation.add(n);
+                continue;
+            }
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                throw new IllegalArgumentException("Invalid insert length: " + length);
+            }
+            byte[] utf8 = new byte[length];
+            in.get(utf8);
+            operation.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+        return operation;
+    }
+
+    // UTF-8 bytes of a string field, or null if they do not fit its u8 length
+    private static byte[] stringBytes(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return utf8.length <= MAX_STRING_BYTES ? utf8 : null;
+    }
+
+    private static void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+        out.writeByte(utf8.length);
+        out.write(utf8);
+    }
+
+    private static Long parseFileId(Object fileId) {
+        if (fileId instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return fileId != null ? Long.valueOf(fileId.toString()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
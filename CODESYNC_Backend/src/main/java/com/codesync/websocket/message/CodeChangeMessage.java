@@ -0,0 +1,26 @@
+package com.codesync.websocket.message;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * An edit to a file: either an operation against a base revision, or the
+ * full file content from clients that do not send deltas. An empty operation
+ * without a revision asks for the file's current text and revision.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CodeChangeMessage(
+        String fileId,
+        Long revision,
+        List<Object> operation,
+        String content) implements InboundMessage {
+
+    public boolean isDelta() {
+        return operation != null;
+    }
+
+    public boolean isSyncRequest() {
+        return operation != null && operation.isEmpty() && revision == null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.codesync.websocket.message;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CursorPositionMessage(
+        String fileId,
+        Integer line,
+        Integer column,
+        Object userId,
+        String userName,
+        Long timestamp) implements InboundMessage {
+}
@@ -0,0 +1,19 @@
+package com.codesync.websocket.message;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Collaboration messages the server interprets, decoded by their {@code type} field.
+ * Types that are only relayed to other clients are never decoded, see {@link MessageTypes}.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+@JsonSubTypes({
+    @JsonSubTypes.Type(value = CodeChangeMessage.class, name = MessageTypes.CODE_CHANGE),
+    @JsonSubTypes.Type(value = CursorPositionMessage.class, name = MessageTypes.CURSOR_POSITION),
+    @JsonSubTypes.Type(value = UserTypingMessage.class, name = MessageTypes.USER_TYPING)
+})
+public sealed interface InboundMessage permits CodeChangeMessage, CursorPositionMessage, UserTypingMessage {
+
+    String fileId();
+}
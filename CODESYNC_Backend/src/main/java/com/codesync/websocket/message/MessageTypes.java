@@ -0,0 +1,71 @@
+package com.codesync.websocket.message;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Message type names and a cheap way to read the type of a raw frame.
+ */
+public final class MessageTypes {
+
+    public static final String CODE_CHANGE = "code_change";
+    public static final String CURSOR_POSITION = "cursor_position";
+    public static final String USER_TYPING = "user_typing";
+    public static final String FILE_SELECTION = "file_selection";
+    public static final String FILE_SAVED = "file_saved";
+    public static final String CHAT_MESSAGE = "chat_message";
+
+    public static final Set<String> ALL = Set.of(CODE_CHANGE, CURSOR_POSITION, USER_TYPING, FILE_SELECTION, FILE_SAVED,
+            CHAT_MESSAGE);
+
+    // The server only forwards these, so their payload is relayed byte for byte
+    private static final Set<String> RELAY_ONLY = Set.of(FILE_SELECTION, FILE_SAVED, CHAT_MESSAGE);
+
+    private MessageTypes() {
+    }
+
+    public static boolean isRelayOnly(String type) {
+        return RELAY_ONLY.contains(type);
+    }
+
+    /**
+     * Stream the top-level fields of a JSON object, skipping nested values without
+     * building them, to find its {@code type} and whether it sets fields the server owns.
+     * The type is null if there is none.
+     */
+    public static Sniffed sniff(JsonFactory jsonFactory, String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new Sniffed(null, false);
+            }
+            String type = null;
+            boolean seq = false;
+            boolean revision = false;
+            boolean operation = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type" -> type = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "seq" -> seq = true;
+                    case "revision" -> revision = true;
+                    case "operation" -> operation = true;
+                    default -> parser.skipChildren();
+                }
+            }
+            // Only an operation is sent with its base revision; everywhere else the server numbers frames
+            return new Sniffed(type, seq || (revision && !operation));
+        }
+    }
+
+    /**
+     * @param serverFields whether the frame sets {@code seq}, or {@code revision} without an operation,
+     *                     which the server adds to frames it relays and clients must not forge
+     */
+    public record Sniffed(String type, boolean serverFields) {
+    }
+}
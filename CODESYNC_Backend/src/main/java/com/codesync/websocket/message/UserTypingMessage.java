@@ -0,0 +1,12 @@
+package com.codesync.websocket.message;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record UserTypingMessage(
+        String fileId,
+        Boolean isTyping,
+        Object userId,
+        String userName,
+        Long timestamp) implements InboundMessage {
+}
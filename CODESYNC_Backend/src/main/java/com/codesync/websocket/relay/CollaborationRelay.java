@@ -0,0 +1,34 @@
+package com.codesync.websocket.relay;
+
+/**
+ * Carries collaboration traffic between backend nodes.
+ *
+ * Every node connects once with its own id. A node subscribes to the projects
+ * it has local sessions for and receives the broadcasts other nodes publish
+ * for them; point-to-point messages (forwarded edits, direct replies) are
+ * addressed to a node id. Messages are never delivered back to the node that
+ * published them.
+ */
+public interface CollaborationRelay {
+
+    void connect(String nodeId, Listener listener);
+
+    void subscribe(String nodeId, String projectId);
+
+    void unsubscribe(String nodeId, String projectId);
+
+    /**
+     * Deliver a broadcast to every other node subscribed to its project.
+     */
+    void publish(RelayMessage message);
+
+    /**
+     * Deliver a message to one node.
+     */
+    void send(String targetNodeId, RelayMessage message);
+
+    interface Listener {
+
+        void onMessage(RelayMessage message);
+    }
+}
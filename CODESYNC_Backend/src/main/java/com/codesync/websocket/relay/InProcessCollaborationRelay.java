@@ -0,0 +1,63 @@
+package com.codesync.websocket.relay;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relay for nodes that live in the same JVM.
+ *
+ * This is the default for a single instance, where there is nobody to relay
+ * to, and doubles as an embedded stand-in for a broker when several handlers
+ * with different node ids share one instance.
+ */
+@Component
+@ConditionalOnProperty(name = "app.collaboration.relay.type", havingValue = "in-process", matchIfMissing = true)
+public class InProcessCollaborationRelay implements CollaborationRelay {
+
+    private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+    // projectId -> subscribed node ids
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    @Override
+    public void connect(String nodeId, Listener listener) {
+        listeners.put(nodeId, listener);
+    }
+
+    @Override
+    public void subscribe(String nodeId, String projectId) {
+        subscriptions.computeIfAbsent(projectId, id -> ConcurrentHashMap.newKeySet()).add(nodeId);
+    }
+
+    @Override
+    public void unsubscribe(String nodeId, String projectId) {
+        subscriptions.computeIfPresent(projectId, (id, nodes) -> {
+            nodes.remove(nodeId);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    @Override
+    public void publish(RelayMessage message) {
+        Set<String> nodes = subscriptions.get(message.projectId());
+        if (nodes == null) {
+            return;
+        }
+        for (String nodeId : nodes) {
+            if (!nodeId.equals(message.originNode())) {
+                send(nodeId, message);
+            }
+        }
+    }
+
+    @Override
+    public void send(String targetNodeId, RelayMessage message) {
+        Listener listener = listeners.get(targetNodeId);
+        if (listener != null) {
+            listener.onMessage(message);
+        }
+    }
+}
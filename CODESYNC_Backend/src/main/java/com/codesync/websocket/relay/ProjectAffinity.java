@@ -0,0 +1,81 @@
+package com.codesync.websocket.relay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which node owns a project, using rendezvous (highest random weight)
+ * hashing over the configured cluster nodes.
+ *
+ * The owner holds the authoritative live documents of the project; edits made
+ * on other nodes are forwarded to it. Routing all sessions of a project to its
+ * owner keeps a hot project on one node and avoids the relay altogether.
+ * Adding or removing a node only moves the projects that node wins or owned.
+ */
+@Component
+public class ProjectAffinity {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectAffinity.class);
+
+    private final String nodeId;
+    private final List<String> nodes;
+
+    public ProjectAffinity(@Value("${app.collaboration.cluster.node-id:local}") String nodeId,
+                           @Value("${app.collaboration.cluster.nodes:}") List<String> nodes) {
+        this.nodeId = nodeId;
+        this.nodes = new ArrayList<>();
+        for (String node : nodes) {
+            if (!node.isBlank()) {
+                this.nodes.add(node.trim());
+            }
+        }
+        if (!this.nodes.contains(nodeId)) {
+            if (!this.nodes.isEmpty()) {
+                log.warn("Node {} is not listed in app.collaboration.cluster.nodes, adding it", nodeId);
+            }
+            this.nodes.add(nodeId);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String ownerOf(String projectId) {
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = weight(node, projectId);
+            if (owner == null || weight > best) {
+                owner = node;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    public boolean isLocal(String projectId) {
+        return nodeId.equals(ownerOf(projectId));
+    }
+
+    // 64-bit FNV-1a over "node/project", finished with a murmur3 mix for a uniform spread
+    private static long weight(String node, String projectId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (node + "/" + projectId).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,122 @@
+package com.codesync.websocket.relay;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Relay over Redis pub/sub: one channel per project for broadcasts and one
+ * per node for point-to-point messages. Nodes only listen on the channels of
+ * projects they currently have sessions for.
+ *
+ * Messages are handed to the listener on a single thread, in the order Redis
+ * delivered them, so a project's edits, acks and broadcasts keep their order.
+ */
+@Component
+@ConditionalOnProperty(name = "app.collaboration.relay.type", havingValue = "redis")
+public class RedisCollaborationRelay implements CollaborationRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCollaborationRelay.class);
+
+    private static final String PROJECT_CHANNEL = "codesync:collaboration:project:";
+    private static final String NODE_CHANNEL = "codesync:collaboration:node:";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer container;
+    // The container's default executor starts a thread per message, which would reorder them
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "collaboration-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, MessageListener> projectListeners = new ConcurrentHashMap<>();
+    private volatile String nodeId;
+    private volatile Listener listener;
+
+    public RedisCollaborationRelay(RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(dispatcher);
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void connect(String nodeId, Listener listener) {
+        this.nodeId = nodeId;
+        this.listener = listener;
+        container.addMessageListener(this::receive, new ChannelTopic(NODE_CHANNEL + nodeId));
+    }
+
+    @Override
+    public void subscribe(String nodeId, String projectId) {
+        projectListeners.computeIfAbsent(projectId, id -> {
+            MessageListener projectListener = this::receive;
+            container.addMessageListener(projectListener, new ChannelTopic(PROJECT_CHANNEL + id));
+            return projectListener;
+        });
+    }
+
+    @Override
+    public void unsubscribe(String nodeId, String projectId) {
+        MessageListener projectListener = projectListeners.remove(projectId);
+        if (projectListener != null) {
+            container.removeMessageListener(projectListener, new ChannelTopic(PROJECT_CHANNEL + projectId));
+        }
+    }
+
+    @Override
+    public void publish(RelayMessage message) {
+        convertAndSend(PROJECT_CHANNEL + message.projectId(), message);
+    }
+
+    @Override
+    public void send(String targetNodeId, RelayMessage message) {
+        convertAndSend(NODE_CHANNEL + targetNodeId, message);
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        container.destroy();
+        dispatcher.shutdown();
+    }
+
+    private void convertAndSend(String channel, RelayMessage message) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("Error publishing relay message to channel: {}", channel, e);
+        }
+    }
+
+    private void receive(Message message, byte[] pattern) {
+        try {
+            RelayMessage relayMessage = objectMapper.readValue(message.getBody(), RelayMessage.class);
+            Listener current = listener;
+            // Pub/sub echoes our own broadcasts back to us
+            if (current != null && !relayMessage.originNode().equals(nodeId)) {
+                current.onMessage(relayMessage);
+            }
+        } catch (Exception e) {
+            log.error("Error reading relay message", e);
+        }
+    }
+}
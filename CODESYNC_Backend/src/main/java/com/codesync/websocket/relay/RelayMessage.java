@@ -0,0 +1,36 @@
+package com.codesync.websocket.relay;
+
+/**
+ * A unit of traffic between nodes. Frames travel as their already serialized
+ * text, plus the binary encoding when the frame has one.
+ *
+ * @param kind       what the receiving node should do with it
+ * @param originNode node that sent it
+ * @param projectId  project it belongs to
+ * @param sessionId  for BROADCAST the session to skip, otherwise the session it concerns
+ * @param userId     user of that session, for FORWARD
+ * @param type       message type of the frame
+ * @param text       JSON text of the frame
+ * @param binary     binary encoding of the frame, may be null
+ */
+public record RelayMessage(
+        Kind kind,
+        String originNode,
+        String projectId,
+        String sessionId,
+        String userId,
+        String type,
+        String text,
+        byte[] binary) {
+
+    public enum Kind {
+        /** A frame to fan out to the receiving node's sessions of the project. */
+        BROADCAST,
+        /** An inbound message to be processed by the project's owner node. */
+        FORWARD,
+        /** A frame for one session on the receiving node. */
+        DIRECT,
+        /** The origin node has no sessions left in the project. */
+        RELEASE
+    }
+}
@@ -0,0 +1,112 @@
+package com.codesync.collaboration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class CollaborativeDocumentTest {
+
+    private static CollaborativeDocument document(String content, int historyLimit) {
+        CollaborativeDocument document = new CollaborativeDocument("1", "7", historyLimit);
+        document.load(content);
+        return document;
+    }
+
+    @Test
+    void applyAtCurrentRevisionAdvancesRevision() {
+        CollaborativeDocument document = document("hello", 10);
+
+        CollaborativeDocument.AppliedOperation applied = document.apply(0, new TextOperation().retain(5).insert("!"));
+
+        assertThat(applied.revision()).isEqualTo(1);
+        assertThat(document.getRevision()).isEqualTo(1);
+        assertThat(document.getContent()).isEqualTo("hello!");
+        assertThat(document.isDirty()).isTrue();
+    }
+
+    @Test
+    void concurrentOperationIsTransformedOverHistory() {
+        CollaborativeDocument document = document("abc", 10);
+        document.apply(0, new TextOperation().insert(">").retain(3));
+
+        // Made against revision 0, before the insert at the start
+        CollaborativeDocument.AppliedOperation applied = document.apply(0, new TextOperation().retain(3).insert("<"));
+
+        assertThat(applied.operation().toJson()).containsExactly(4, "<");
+        assertThat(document.getContent()).isEqualTo(">abc<");
+        assertThat(document.getRevision()).isEqualTo(2);
+    }
+
+    @Test
+    void revisionAheadOfDocumentIsStale() {
+        CollaborativeDocument document = document("abc", 10);
+
+        assertThatThrownBy(() -> document.apply(1, new TextOperation().retain(3)))
+                .isInstanceOf(StaleRevisionException.class)
+                .satisfies(e -> assertThat(((StaleRevisionException) e).getCurrentRevision()).isZero());
+    }
+
+    @Test
+    void revisionOlderThanHistoryLimitIsStale() {
+        CollaborativeDocument document = document("", 2);
+        for (int i = 0; i < 3; i++) {
+            document.apply(i, new TextOperation().retain(i).insert("x"));
+        }
+
+        // Revisions 1 and 2 can still be transformed, revision 0 fell out of the history
+        assertThatThrownBy(() -> document.apply(0, new TextOperation().insert("y")))
+                .isInstanceOf(StaleRevisionException.class);
+        document.apply(1, new TextOperation().retain(1).insert("y"));
+        assertThat(document.getRevision()).isEqualTo(4);
+    }
+
+    @Test
+    void resetClearsHistoryForOlderRevisions() {
+        CollaborativeDocument document = document("abc", 10);
+        document.apply(0, new TextOperation().retain(3).insert("d"));
+
+        long revision = document.reset("new");
+
+        assertThat(revision).isEqualTo(2);
+        assertThat(document.getContent()).isEqualTo("new");
+        assertThatThrownBy(() -> document.apply(1, new TextOperation().retain(4).insert("e")))
+                .isInstanceOf(StaleRevisionException.class);
+    }
+
+    @Test
+    void mismatchedBaseLengthLeavesDocumentUnchanged() {
+        CollaborativeDocument document = document("abc", 10);
+
+        assertThatThrownBy(() -> document.apply(0, new TextOperation().retain(5).insert("x")))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(document.getContent()).isEqualTo("abc");
+        assertThat(document.getRevision()).isZero();
+        assertThat(document.isDirty()).isFalse();
+    }
+
+    @Test
+    void versionFollowsContent() {
+        CollaborativeDocument document = document("abc", 10);
+        String loaded = document.getVersion();
+
+        document.apply(0, new TextOperation().retain(3).insert("d"));
+
+        assertThat(loaded).isEqualTo(ContentVersion.of("abc"));
+        assertThat(document.getVersion()).isEqualTo(ContentVersion.of("abcd"));
+    }
+
+    @Test
+    void markPersistedOnlyCleansFlushedRevisions() {
+        CollaborativeDocument document = document("", 10);
+        document.apply(0, new TextOperation().insert("a"));
+        CollaborativeDocument.Snapshot snapshot = document.snapshot();
+        document.apply(1, new TextOperation().retain(1).insert("b"));
+
+        document.markPersisted(snapshot.revision());
+
+        assertThat(snapshot.content()).isEqualTo("a");
+        assertThat(document.isDirty()).isTrue();
+    }
+}
@@ -0,0 +1,70 @@
+package com.codesync.collaboration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.codesync.entity.ProjectFile;
+import com.codesync.repository.ProjectFileRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LiveDocumentStoreTest {
+
+    private final ProjectFileRepository fileRepository = mock(ProjectFileRepository.class);
+    private LiveDocumentStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LiveDocumentStore(fileRepository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ProjectFile file = new ProjectFile();
+        file.setContent("hello");
+        when(fileRepository.findByIdAndProjectId(7L, 1L)).thenReturn(Optional.of(file));
+        when(fileRepository.findByIdAndProjectId(anyLong(), eq(2L))).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void documentIsLoadedBeforeItIsReturned() {
+        CollaborativeDocument document = store.getOrCreate("1", "7");
+
+        assertThat(document.isLoaded()).isTrue();
+        assertThat(document.getContent()).isEqualTo("hello");
+        assertThat(document.isDirty()).isFalse();
+    }
+
+    @Test
+    void equivalentIdsShareOneDocument() {
+        CollaborativeDocument document = store.getOrCreate("1", "7");
+
+        assertThat(store.getOrCreate("01", "07")).isSameAs(document);
+        assertThat(store.get(7L)).isSameAs(document);
+        assertThat(document.getFileId()).isEqualTo("7");
+    }
+
+    @Test
+    void nonNumericIdsAreRefusedWithoutCreatingADocument() {
+        assertThat(store.getOrCreate("1", "scratch")).isNull();
+        assertThat(store.getOrCreate("project", "7")).isNull();
+
+        verify(fileRepository, never()).findByIdAndProjectId(any(), any());
+    }
+
+    @Test
+    void fileOfAnotherProjectIsRefused() {
+        assertThat(store.getOrCreate("2", "7")).isNull();
+
+        store.getOrCreate("1", "7");
+        assertThat(store.getOrCreate("2", "7")).isNull();
+    }
+}
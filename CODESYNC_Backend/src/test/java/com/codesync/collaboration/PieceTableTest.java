@@ -0,0 +1,100 @@
+package com.codesync.collaboration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PieceTableTest {
+
+    @Test
+    void insertsAndDeletesAcrossPieces() {
+        PieceTable table = new PieceTable("hello world");
+
+        table.insert(5, ",");
+        table.insert(12, "!");
+        table.delete(0, 1);
+        table.insert(0, "J");
+
+        assertThat(table.toString()).isEqualTo("Jello, world!");
+        assertThat(table.length()).isEqualTo(13);
+    }
+
+    @Test
+    void deleteSpanningInsertedAndOriginalText() {
+        PieceTable table = new PieceTable("abcdef");
+        table.insert(3, "XYZ");
+
+        table.delete(2, 5);
+
+        assertThat(table.toString()).isEqualTo("abef");
+    }
+
+    @Test
+    void applyMatchesStringApply() {
+        PieceTable table = new PieceTable("hello world");
+        TextOperation operation = new TextOperation().retain(6).delete(5).insert("there");
+
+        table.apply(operation);
+
+        assertThat(table.toString()).isEqualTo(operation.apply("hello world"));
+    }
+
+    @Test
+    void applyRejectsMismatchedBaseLength() {
+        PieceTable table = new PieceTable("abc");
+
+        assertThatThrownBy(() -> table.apply(new TextOperation().retain(4)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(table.toString()).isEqualTo("abc");
+    }
+
+    @Test
+    void rejectsEditsOutsideTheDocument() {
+        PieceTable table = new PieceTable("abc");
+
+        assertThatThrownBy(() -> table.insert(4, "x")).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> table.delete(2, 2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void resetReplacesContent() {
+        PieceTable table = new PieceTable("abc");
+        table.insert(3, "d");
+
+        table.reset(null);
+        table.insert(0, "new");
+
+        assertThat(table.toString()).isEqualTo("new");
+    }
+
+    @Test
+    void manyRandomEditsMatchStringBuilder() {
+        // Enough edits to fragment past the piece limit and force a collapse
+        Random random = new Random(7);
+        StringBuilder expected = new StringBuilder("The quick brown fox jumps over the lazy dog");
+        PieceTable table = new PieceTable(expected.toString());
+
+        for (int i = 0; i < 5000; i++) {
+            if (expected.length() > 0 && random.nextInt(3) == 0) {
+                int position = random.nextInt(expected.length());
+                int count = random.nextInt(Math.min(4, expected.length() - position) + 1);
+                expected.delete(position, position + count);
+                table.delete(position, count);
+            } else {
+                int position = random.nextInt(expected.length() + 1);
+                String text = String.valueOf((char) ('a' + random.nextInt(26)));
+                expected.insert(position, text);
+                table.insert(position, text);
+            }
+            if (i % 500 == 0) {
+                assertThat(table.toString()).isEqualTo(expected.toString());
+            }
+        }
+
+        assertThat(table.toString()).isEqualTo(expected.toString());
+        assertThat(table.length()).isEqualTo(expected.length());
+    }
+}
@@ -0,0 +1,131 @@
+package com.codesync.collaboration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TextOperationTest {
+
+    @Test
+    void applyRetainsInsertsAndDeletes() {
+        TextOperation operation = new TextOperation().retain(6).delete(5).insert("there");
+
+        assertThat(operation.apply("hello world")).isEqualTo("hello there");
+        assertThat(operation.getBaseLength()).isEqualTo(11);
+        assertThat(operation.getTargetLength()).isEqualTo(11);
+    }
+
+    @Test
+    void applyRejectsMismatchedBaseLength() {
+        TextOperation operation = new TextOperation().retain(5).insert("!");
+
+        assertThatThrownBy(() -> operation.apply("hello world"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("base length 5");
+    }
+
+    @Test
+    void transformRejectsMismatchedBaseLength() {
+        TextOperation a = new TextOperation().retain(3).insert("x");
+        TextOperation b = new TextOperation().retain(4).insert("y");
+
+        assertThatThrownBy(() -> TextOperation.transform(a, b)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void concurrentInsertsAtTheSamePositionConvergeWithFirstOnTheLeft() {
+        String base = "ac";
+        TextOperation a = new TextOperation().retain(1).insert("b").retain(1);
+        TextOperation b = new TextOperation().retain(1).insert("B").retain(1);
+
+        assertConverges(base, a, b, "abBc");
+    }
+
+    @Test
+    void overlappingDeletesConverge() {
+        String base = "abcdefgh";
+        TextOperation a = new TextOperation().retain(2).delete(4).retain(2);
+        TextOperation b = new TextOperation().retain(4).delete(3).retain(1);
+
+        assertConverges(base, a, b, "abh");
+    }
+
+    @Test
+    void insertInsideDeletedRangeSurvives() {
+        String base = "abcdef";
+        TextOperation a = new TextOperation().retain(1).delete(4).retain(1);
+        TextOperation b = new TextOperation().retain(3).insert("XY").retain(3);
+
+        assertConverges(base, a, b, "aXYf");
+    }
+
+    @Test
+    void randomConcurrentOperationsConverge() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            String base = randomText(random, random.nextInt(40));
+            TextOperation a = randomOperation(random, base);
+            TextOperation b = randomOperation(random, base);
+
+            TextOperation[] transformed = TextOperation.transform(a, b);
+
+            assertThat(transformed[1].apply(a.apply(base)))
+                    .as("round %d: %s vs %s on \"%s\"", round, a, b, base)
+                    .isEqualTo(transformed[0].apply(b.apply(base)));
+        }
+    }
+
+    @Test
+    void jsonRoundTripKeepsComponents() {
+        TextOperation operation = TextOperation.fromJson(List.of(3, "abc", -2, 1));
+
+        assertThat(operation.toJson()).containsExactly(3, "abc", -2, 1);
+        assertThat(operation.apply("012345")).isEqualTo("012abc5");
+    }
+
+    @Test
+    void fromJsonRejectsZeroLengthComponent() {
+        assertThatThrownBy(() -> TextOperation.fromJson(List.of(2, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void assertConverges(String base, TextOperation a, TextOperation b, String expected) {
+        TextOperation[] transformed = TextOperation.transform(a, b);
+
+        assertThat(transformed[1].apply(a.apply(base))).isEqualTo(expected);
+        assertThat(transformed[0].apply(b.apply(base))).isEqualTo(expected);
+    }
+
+    private static TextOperation randomOperation(Random random, String text) {
+        TextOperation operation = new TextOperation();
+        int position = 0;
+        while (position < text.length()) {
+            int n = 1 + random.nextInt(Math.min(5, text.length() - position));
+            switch (random.nextInt(3)) {
+                case 0 -> operation.retain(n);
+                case 1 -> operation.delete(n);
+                default -> {
+                    operation.insert(randomText(random, 1 + random.nextInt(4)));
+                    continue;
+                }
+            }
+            position += n;
+        }
+        if (random.nextBoolean()) {
+            operation.insert(randomText(random, 1 + random.nextInt(4)));
+        }
+        return operation;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
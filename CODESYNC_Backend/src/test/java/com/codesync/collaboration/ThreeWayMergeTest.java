@@ -0,0 +1,108 @@
+package com.codesync.collaboration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ThreeWayMergeTest {
+
+    private static final String BASE = "one\ntwo\nthree\nfour\nfive\n";
+
+    @Test
+    void changeOnlyInYoursIsTaken() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "one\nTWO\nthree\nfour\nfive\n", BASE);
+
+        assertThat(result.content()).isEqualTo("one\nTWO\nthree\nfour\nfive\n");
+        assertThat(result.conflicts()).isZero();
+    }
+
+    @Test
+    void changeOnlyInCurrentIsKept() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, BASE, "one\ntwo\nthree\nfive\n");
+
+        assertThat(result.content()).isEqualTo("one\ntwo\nthree\nfive\n");
+        assertThat(result.conflicts()).isZero();
+    }
+
+    @Test
+    void separateChangesOnBothSidesAreCombined() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE,
+                "zero\none\ntwo\nthree\nfour\nfive\n",
+                "one\ntwo\nthree\nfour\nFIVE\n");
+
+        assertThat(result.content()).isEqualTo("zero\none\ntwo\nthree\nfour\nFIVE\n");
+        assertThat(result.conflicts()).isZero();
+    }
+
+    @Test
+    void identicalChangesOnBothSidesAreTakenOnce() {
+        String edited = "one\ntwo\n3\nfour\nfive\n";
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, edited, edited);
+
+        assertThat(result.content()).isEqualTo(edited);
+        assertThat(result.conflicts()).isZero();
+    }
+
+    @Test
+    void overlappingChangesAreMarked() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE,
+                "one\ntwo\nmine\nfour\nfive\n",
+                "one\ntwo\ntheirs\nfour\nfive\n");
+
+        assertThat(result.conflicts()).isEqualTo(1);
+        assertThat(result.content()).isEqualTo("one\ntwo\n"
+                + ThreeWayMerge.MARKER_YOURS + "\nmine\n"
+                + ThreeWayMerge.MARKER_SEPARATOR + "\ntheirs\n"
+                + ThreeWayMerge.MARKER_CURRENT + "\nfour\nfive\n");
+    }
+
+    @Test
+    void markersStartOnTheirOwnLineWhenTheLastLineHasNoNewline() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge("a\nb", "a\nmine", "a\ntheirs");
+
+        assertThat(result.conflicts()).isEqualTo(1);
+        assertThat(result.content()).isEqualTo("a\n"
+                + ThreeWayMerge.MARKER_YOURS + "\nmine\n"
+                + ThreeWayMerge.MARKER_SEPARATOR + "\ntheirs\n"
+                + ThreeWayMerge.MARKER_CURRENT + "\n");
+    }
+
+    @Test
+    void emptyBaseWithDifferentAdditionsConflicts() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge("", "mine\n", "theirs\n");
+
+        assertThat(result.conflicts()).isEqualTo(1);
+    }
+
+    @Test
+    void tooLargeDifferenceGivesNoCandidate() {
+        // About 2100 x 2100 differing lines is past the comparison budget
+        StringBuilder base = new StringBuilder();
+        StringBuilder yours = new StringBuilder();
+        for (int i = 0; i < 2100; i++) {
+            base.append("base ").append(i).append('\n');
+            yours.append("yours ").append(i).append('\n');
+        }
+
+        assertThat(ThreeWayMerge.merge(base.toString(), yours.toString(), base.toString())).isNull();
+    }
+
+    @Test
+    void largeFileWithSmallChangesStillMerges() {
+        // The common prefix and suffix are trimmed before comparing, so only the changed lines count
+        StringBuilder base = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            base.append("line ").append(i).append('\n');
+        }
+        String text = base.toString();
+        String yours = text.replace("line 100\n", "line one hundred\n");
+        String current = text.replace("line 19000\n", "line nineteen thousand\n");
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(text, yours, current);
+
+        assertThat(result).isNotNull();
+        assertThat(result.conflicts()).isZero();
+        assertThat(result.content()).contains("line one hundred\n").contains("line nineteen thousand\n");
+    }
+}
@@ -0,0 +1,174 @@
+package com.codesync.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.codesync.collaboration.ContentVersion;
+import com.codesync.collaboration.FileVersionHistory;
+import com.codesync.collaboration.LiveDocumentStore;
+import com.codesync.config.GlobalExceptionHandler.FileVersionConflictException;
+import com.codesync.dto.file.FileVersionResponse;
+import com.codesync.dto.file.PatchFileRequest;
+import com.codesync.entity.Project;
+import com.codesync.entity.ProjectFile;
+import com.codesync.entity.User;
+import com.codesync.repository.ProjectFileRepository;
+import com.codesync.repository.ProjectRepository;
+import com.codesync.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FileServiceTest {
+
+    private static final Long FILE_ID = 7L;
+    private static final String USER = "user@codesync.com";
+
+    private final ProjectFileRepository fileRepository = mock(ProjectFileRepository.class);
+    private final ProjectRepository projectRepository = mock(ProjectRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final FileVersionHistory versionHistory = new FileVersionHistory(1_000);
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService();
+        ReflectionTestUtils.setField(fileService, "fileRepository", fileRepository);
+        ReflectionTestUtils.setField(fileService, "projectRepository", projectRepository);
+        ReflectionTestUtils.setField(fileService, "userRepository", userRepository);
+        // Files without a live document take the direct database path
+        ReflectionTestUtils.setField(fileService, "liveDocumentStore", mock(LiveDocumentStore.class));
+        ReflectionTestUtils.setField(fileService, "versionHistory", versionHistory);
+        ReflectionTestUtils.setField(fileService, "meterRegistry", new SimpleMeterRegistry());
+        fileService.initMetrics();
+        when(userRepository.findByEmail(USER)).thenReturn(Optional.of(new User()));
+    }
+
+    @Test
+    void editsAreAppliedInOffsetOrderAndSavedWithCompareAndSet() {
+        String base = stored("hello world");
+        String patched = "HELLO there";
+        when(fileRepository.updateContentIfUnchanged(eq(FILE_ID), eq(patched), eq(ContentVersion.of(patched)),
+                any(), eq(base))).thenReturn(1);
+
+        FileVersionResponse response = fileService.patchFileContent(FILE_ID,
+                patch(base, new PatchFileRequest.Edit(6, 11, "there"), new PatchFileRequest.Edit(0, 5, "HELLO")),
+                USER);
+
+        assertThat(response.getVersion()).isEqualTo(ContentVersion.of(patched));
+        assertThat(response.getLength()).isEqualTo(patched.length());
+        assertThat(versionHistory.get(FILE_ID, response.getVersion())).isEqualTo(patched);
+    }
+
+    @Test
+    void overlappingEditsAreRejectedWithoutWriting() {
+        String base = stored("hello world");
+
+        assertThatThrownBy(() -> fileService.patchFileContent(FILE_ID,
+                patch(base, new PatchFileRequest.Edit(0, 5, "a"), new PatchFileRequest.Edit(3, 8, "b")), USER))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> fileService.patchFileContent(FILE_ID,
+                patch(base, new PatchFileRequest.Edit(4, 20, "a")), USER))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(fileRepository, never()).updateContentIfUnchanged(any(), anyString(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void saveThatLandedAfterTheReadIsAConflictWithAMergeCandidate() {
+        String base = stored("one\ntwo\nthree\n");
+        versionHistory.record(FILE_ID, base, "one\ntwo\nthree\n");
+        ProjectFile latest = file("one\ntwo\nthree!\n");
+        when(fileRepository.updateContentIfUnchanged(eq(FILE_ID), anyString(), anyString(), any(), eq(base)))
+                .thenReturn(0);
+        when(fileRepository.findById(FILE_ID))
+                .thenReturn(Optional.of(file("one\ntwo\nthree\n")), Optional.of(latest));
+
+        assertThatThrownBy(() -> fileService.patchFileContent(FILE_ID,
+                patch(base, new PatchFileRequest.Edit(0, 3, "ONE")), USER))
+                .isInstanceOfSatisfying(FileVersionConflictException.class, conflict -> {
+                    assertThat(conflict.getCurrentVersion()).isEqualTo(latest.getContentHash());
+                    assertThat(conflict.getMergeCandidate()).isEqualTo("ONE\ntwo\nthree!\n");
+                    assertThat(conflict.getMergeConflicts()).isZero();
+                });
+    }
+
+    @Test
+    void editsThatDoNotFitTheBaseAreStillAConflict() {
+        String staleVersion = ContentVersion.of("hi");
+        versionHistory.record(FILE_ID, staleVersion, "hi");
+        String current = stored("hello world");
+
+        assertThatThrownBy(() -> fileService.patchFileContent(FILE_ID,
+                patch(staleVersion, new PatchFileRequest.Edit(0, 5, "HELLO")), USER))
+                .isInstanceOfSatisfying(FileVersionConflictException.class, conflict -> {
+                    assertThat(conflict.getCurrentVersion()).isEqualTo(current);
+                    assertThat(conflict.getMergeCandidate()).isNull();
+                });
+    }
+
+    @Test
+    void fullSaveAgainstAnOutdatedVersionIsAConflict() {
+        String base = ContentVersion.of("one\ntwo\n");
+        versionHistory.record(FILE_ID, base, "one\ntwo\n");
+        ProjectFile latest = file("one\ntwo\nthree\n");
+        when(fileRepository.updateContentIfUnchanged(eq(FILE_ID), eq("ONE\ntwo\n"), anyString(), any(), eq(base)))
+                .thenReturn(0);
+        when(fileRepository.findById(FILE_ID)).thenReturn(Optional.of(latest));
+
+        assertThatThrownBy(() -> fileService.updateFileContent(FILE_ID, "ONE\ntwo\n", base, USER))
+                .isInstanceOfSatisfying(FileVersionConflictException.class, conflict -> {
+                    assertThat(conflict.getCurrentVersion()).isEqualTo(latest.getContentHash());
+                    assertThat(conflict.getMergeCandidate()).isEqualTo("ONE\ntwo\nthree\n");
+                });
+        verify(fileRepository, never()).updateContent(any(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void readsDoNotRecordVersions() {
+        Project project = new Project();
+        project.setId(1L);
+        ProjectFile listed = file("hello world");
+        listed.setProject(project);
+        when(projectRepository.findById(1L)).thenReturn(Optional.of(project));
+        when(fileRepository.findByProjectId(1L)).thenReturn(List.of(listed));
+        when(fileRepository.findById(FILE_ID)).thenReturn(Optional.of(listed));
+
+        fileService.getProjectFiles(1L, USER);
+        fileService.getFile(FILE_ID, USER);
+
+        assertThat(versionHistory.get(FILE_ID, listed.getContentHash())).isNull();
+    }
+
+    // Stores a file with this content and returns its version
+    private String stored(String content) {
+        ProjectFile file = file(content);
+        when(fileRepository.findById(FILE_ID)).thenReturn(Optional.of(file));
+        return file.getContentHash();
+    }
+
+    private static ProjectFile file(String content) {
+        ProjectFile file = new ProjectFile();
+        file.setId(FILE_ID);
+        file.setContent(content);
+        file.setContentHash(ContentVersion.of(content));
+        return file;
+    }
+
+    private static PatchFileRequest patch(String baseVersion, PatchFileRequest.Edit... edits) {
+        return new PatchFileRequest(baseVersion, List.of(edits));
+    }
+}
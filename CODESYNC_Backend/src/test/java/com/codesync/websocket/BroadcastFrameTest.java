@@ -0,0 +1,58 @@
+package com.codesync.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+class BroadcastFrameTest {
+
+    @Test
+    void fragmentsJoinBackToThePayload() {
+        String payload = "{\"content\":\"" + "x".repeat(25) + "\"}";
+        BroadcastFrame frame = BroadcastFrame.of("code_change", payload.getBytes(StandardCharsets.UTF_8));
+
+        List<TextMessage> parts = collect(frame.fragments(10));
+
+        assertThat(parts).hasSize(4);
+        assertThat(parts).allSatisfy(part -> assertThat(part.getPayloadLength()).isLessThanOrEqualTo(10));
+        assertThat(parts.subList(0, 3)).noneMatch(TextMessage::isLast);
+        assertThat(parts.get(3).isLast()).isTrue();
+        assertThat(join(parts)).isEqualTo(payload);
+    }
+
+    @Test
+    void surrogatePairsAreNotSplit() {
+        String payload = "ab😀cd";
+        BroadcastFrame frame = BroadcastFrame.of("code_change", payload.getBytes(StandardCharsets.UTF_8));
+
+        List<TextMessage> parts = collect(frame.fragments(3));
+
+        assertThat(parts).extracting(TextMessage::getPayload).containsExactly("ab", "😀c", "d");
+    }
+
+    @Test
+    void everyIterationCutsItsOwnParts() {
+        BroadcastFrame frame = BroadcastFrame.of("code_change", "abcdef".getBytes(StandardCharsets.UTF_8));
+        Iterable<TextMessage> fragments = frame.fragments(4);
+
+        assertThat(join(collect(fragments))).isEqualTo("abcdef");
+        assertThat(join(collect(fragments))).isEqualTo("abcdef");
+    }
+
+    private static List<TextMessage> collect(Iterable<TextMessage> fragments) {
+        List<TextMessage> parts = new ArrayList<>();
+        fragments.forEach(parts::add);
+        return parts;
+    }
+
+    private static String join(List<TextMessage> parts) {
+        StringBuilder joined = new StringBuilder();
+        parts.forEach(part -> joined.append(part.getPayload()));
+        return joined.toString();
+    }
+}
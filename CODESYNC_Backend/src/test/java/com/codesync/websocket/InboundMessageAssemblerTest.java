@@ -0,0 +1,65 @@
+package com.codesync.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+class InboundMessageAssemblerTest {
+
+    private final AtomicLong buffered = new AtomicLong();
+
+    @Test
+    void unfragmentedMessageIsPassedThrough() {
+        InboundMessageAssembler assembler = new InboundMessageAssembler(16, buffered, 32);
+        TextMessage message = new TextMessage("whole");
+
+        assertThat(assembler.append(message)).isSameAs(message);
+        assertThat(buffered).hasValue(0);
+    }
+
+    @Test
+    void partsAreJoinedAndTheirBytesReleased() {
+        InboundMessageAssembler assembler = new InboundMessageAssembler(16, buffered, 32);
+
+        assertThat(assembler.append(new TextMessage("abc", false))).isNull();
+        assertThat(buffered).hasValue(3);
+        assertThat(assembler.append(new TextMessage("def", true)).getPayload()).isEqualTo("abcdef");
+        assertThat(buffered).hasValue(0);
+
+        assertThat(assembler.append(new BinaryMessage(new byte[] { 1, 2 }, false))).isNull();
+        BinaryMessage complete = assembler.append(new BinaryMessage(new byte[] { 3 }, true));
+        assertThat(complete.getPayload().array()).containsExactly(1, 2, 3);
+        assertThat(buffered).hasValue(0);
+    }
+
+    @Test
+    void messagePastTheSessionLimitIsRejected() {
+        InboundMessageAssembler assembler = new InboundMessageAssembler(4, buffered, 32);
+        assembler.append(new TextMessage("abc", false));
+
+        assertThatThrownBy(() -> assembler.append(new TextMessage("de", false)))
+                .isInstanceOf(InboundMessageAssembler.MessageTooLargeException.class);
+        assertThat(buffered).hasValue(0);
+    }
+
+    @Test
+    void partialMessagesShareTheNodeBudget() {
+        InboundMessageAssembler first = new InboundMessageAssembler(16, buffered, 8);
+        InboundMessageAssembler second = new InboundMessageAssembler(16, buffered, 8);
+        first.append(new TextMessage("abcdef", false));
+
+        assertThatThrownBy(() -> second.append(new TextMessage("ghi", false)))
+                .isInstanceOf(InboundMessageAssembler.BufferBudgetExceededException.class);
+        assertThat(buffered).hasValue(6);
+
+        first.discard();
+        assertThat(buffered).hasValue(0);
+        assertThat(second.append(new TextMessage("ghi", false))).isNull();
+        assertThat(buffered).hasValue(3);
+    }
+}
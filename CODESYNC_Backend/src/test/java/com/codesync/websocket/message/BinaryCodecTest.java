@@ -0,0 +1,56 @@
+package com.codesync.websocket.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryCodecTest {
+
+    @Test
+    void codeChangeRoundTripsThroughDecode() {
+        ByteBuffer frame = ByteBuffer.allocate(64)
+                .put(BinaryCodec.OP_CODE_CHANGE).putLong(7).putLong(3)
+                .putInt(2).putInt(5).putInt(0).putInt(2).put("é".getBytes(StandardCharsets.UTF_8))
+                .flip();
+
+        CodeChangeMessage message = (CodeChangeMessage) BinaryCodec.decode(frame);
+
+        assertThat(message.fileId()).isEqualTo("7");
+        assertThat(message.revision()).isEqualTo(3L);
+        assertThat(message.operation()).containsExactly(5, "é");
+    }
+
+    @Test
+    void multiByteUserIdIsWrittenWhole() {
+        String userId = "é".repeat(127);
+
+        ByteBuffer encoded = ByteBuffer.wrap(BinaryCodec.encodeCodeChange("7", 1, userId, List.of(1)));
+
+        encoded.position(1 + Long.BYTES + Long.BYTES);
+        byte[] utf8 = new byte[encoded.get() & 0xff];
+        encoded.get(utf8);
+        assertThat(new String(utf8, StandardCharsets.UTF_8)).isEqualTo(userId);
+    }
+
+    @Test
+    void userIdLongerThanAStringFieldFallsBackToText() {
+        // 256 bytes, and cutting at 255 would split the last character
+        String userId = "a" + "é".repeat(127) + "b";
+
+        assertThat(BinaryCodec.encodeCodeChange("7", 1, userId, List.of(1))).isNull();
+        assertThat(BinaryCodec.encodePresence(List.of(Map.of("userId", userId, "fileId", "7", "line", 1, "column", 2))))
+                .isNull();
+    }
+
+    @Test
+    void presenceWithNonNumericFileIdFallsBackToText() {
+        assertThat(BinaryCodec.encodePresence(List.of(Map.of("userId", "1", "fileId", "bench-file")))).isNull();
+        assertThat(BinaryCodec.encodePresence(List.of(Map.of("userId", "1", "fileId", "7", "isTyping", true))))
+                .isNotNull();
+    }
+}
@@ -0,0 +1,244 @@
+package com.codesync.websocket.relay;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Just enough of a Redis server for pub/sub over RESP2: SUBSCRIBE, UNSUBSCRIBE,
+ * PUBLISH and PING. Every other command is acknowledged with OK, except HELLO,
+ * which is refused so that clients fall back to RESP2.
+ */
+class FakeRedisServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final Map<String, Set<Client>> channels = new ConcurrentHashMap<>();
+
+    FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Wait until a channel has the given number of subscribers, since clients subscribe asynchronously.
+     */
+    boolean awaitSubscribers(String channel, int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (subscribers(channel) != count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    int subscribers(String channel) {
+        Set<Client> subscribed = channels.get(channel);
+        return subscribed != null ? subscribed.size() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Client client = new Client(serverSocket.accept());
+                clients.add(client);
+                Thread reader = new Thread(client::serve, "fake-redis-client");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private final class Client {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+
+        private Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        private void serve() {
+            try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+                while (true) {
+                    List<byte[]> command = readCommand(in);
+                    handle(command);
+                }
+            } catch (IOException e) {
+                // Client went away
+            } finally {
+                for (String channel : subscriptions) {
+                    unsubscribe(channel);
+                }
+                clients.remove(this);
+            }
+        }
+
+        private void handle(List<byte[]> command) throws IOException {
+            String name = text(command.get(0)).toUpperCase();
+            switch (name) {
+                case "HELLO" -> write(error("ERR unknown command 'HELLO'"));
+                case "PING" -> write(subscriptions.isEmpty() ? simple("PONG") : array(bulk("pong"), bulk("")));
+                case "SUBSCRIBE" -> {
+                    for (byte[] channel : command.subList(1, command.size())) {
+                        String key = text(channel);
+                        subscriptions.add(key);
+                        channels.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(this);
+                        write(array(bulk("subscribe"), bulk(channel), integer(subscriptions.size())));
+                    }
+                }
+                case "UNSUBSCRIBE" -> {
+                    List<String> targets = new ArrayList<>();
+                    for (byte[] channel : command.subList(1, command.size())) {
+                        targets.add(text(channel));
+                    }
+                    if (targets.isEmpty()) {
+                        targets.addAll(subscriptions);
+                    }
+                    if (targets.isEmpty()) {
+                        write(array(bulk("unsubscribe"), "$-1\r\n".getBytes(StandardCharsets.US_ASCII), integer(0)));
+                    }
+                    for (String channel : targets) {
+                        unsubscribe(channel);
+                        write(array(bulk("unsubscribe"), bulk(channel), integer(subscriptions.size())));
+                    }
+                }
+                case "PUBLISH" -> {
+                    Set<Client> receivers = channels.getOrDefault(text(command.get(1)), Set.of());
+                    for (Client receiver : receivers) {
+                        receiver.write(array(bulk("message"), bulk(command.get(1)), bulk(command.get(2))));
+                    }
+                    write(integer(receivers.size()));
+                }
+                case "QUIT" -> {
+                    write(simple("OK"));
+                    close();
+                }
+                default -> write(simple("OK"));
+            }
+        }
+
+        private void unsubscribe(String channel) {
+            subscriptions.remove(channel);
+            channels.computeIfPresent(channel, (key, subscribed) -> {
+                subscribed.remove(this);
+                return subscribed.isEmpty() ? null : subscribed;
+            });
+        }
+
+        // Publishers write to other clients' sockets, so writes are serialized per client
+        private synchronized void write(byte[] reply) throws IOException {
+            out.write(reply);
+            out.flush();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (!header.startsWith("*")) {
+            throw new IOException("Expected a multi-bulk command, got: " + header);
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<byte[]> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String length = readLine(in);
+            byte[] part = in.readNBytes(Integer.parseInt(length.substring(1)));
+            readLine(in);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] simple(String value) {
+        return ("+" + value + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] error(String message) {
+        return ("-" + message + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] integer(long value) {
+        return (":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bulk(String value) {
+        return bulk(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bulk(byte[] value) {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream(value.length + 16);
+        reply.writeBytes(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        reply.writeBytes(value);
+        reply.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return reply.toByteArray();
+    }
+
+    private static byte[] array(byte[]... elements) {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        reply.writeBytes(("*" + elements.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (byte[] element : elements) {
+            reply.writeBytes(element);
+        }
+        return reply.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+package com.codesync.websocket.relay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectAffinityTest {
+
+    private static final int PROJECTS = 2000;
+
+    @Test
+    void everyNodeAgreesOnTheOwner() {
+        List<String> nodes = List.of("node-a", "node-b", "node-c");
+        ProjectAffinity a = new ProjectAffinity("node-a", nodes);
+        ProjectAffinity c = new ProjectAffinity("node-c", List.of("node-c", "node-b", "node-a"));
+
+        for (int project = 0; project < PROJECTS; project++) {
+            String projectId = String.valueOf(project);
+            assertThat(a.ownerOf(projectId)).isEqualTo(c.ownerOf(projectId)).isIn(nodes);
+            assertThat(a.isLocal(projectId)).isEqualTo("node-a".equals(a.ownerOf(projectId)));
+        }
+    }
+
+    @Test
+    void projectsAreSpreadOverAllNodes() {
+        ProjectAffinity affinity = new ProjectAffinity("node-a", List.of("node-a", "node-b", "node-c"));
+
+        int owned = 0;
+        for (int project = 0; project < PROJECTS; project++) {
+            if (affinity.isLocal(String.valueOf(project))) {
+                owned++;
+            }
+        }
+
+        assertThat(owned).isBetween(PROJECTS / 4, PROJECTS * 5 / 12);
+    }
+
+    @Test
+    void addingANodeOnlyMovesProjectsToIt() {
+        ProjectAffinity before = new ProjectAffinity("node-a", List.of("node-a", "node-b", "node-c"));
+        ProjectAffinity after = new ProjectAffinity("node-a", List.of("node-a", "node-b", "node-c", "node-d"));
+
+        int moved = 0;
+        for (int project = 0; project < PROJECTS; project++) {
+            String projectId = String.valueOf(project);
+            if (!before.ownerOf(projectId).equals(after.ownerOf(projectId))) {
+                assertThat(after.ownerOf(projectId)).isEqualTo("node-d");
+                moved++;
+            }
+        }
+
+        // About a quarter of the projects should move to the new node
+        assertThat(moved).isBetween(PROJECTS / 6, PROJECTS / 3);
+    }
+
+    @Test
+    void removingANodeOnlyMovesItsOwnProjects() {
+        ProjectAffinity before = new ProjectAffinity("node-a", List.of("node-a", "node-b", "node-c"));
+        ProjectAffinity after = new ProjectAffinity("node-a", List.of("node-a", "node-b"));
+
+        for (int project = 0; project < PROJECTS; project++) {
+            String projectId = String.valueOf(project);
+            String owner = before.ownerOf(projectId);
+            if (!owner.equals("node-c")) {
+                assertThat(after.ownerOf(projectId)).isEqualTo(owner);
+            } else {
+                assertThat(after.ownerOf(projectId)).isIn("node-a", "node-b");
+            }
+        }
+    }
+
+    @Test
+    void localNodeMissingFromTheListIsAdded() {
+        ProjectAffinity single = new ProjectAffinity("local", List.of());
+        ProjectAffinity unlisted = new ProjectAffinity("node-x", List.of("node-a", " ", "node-b"));
+
+        assertThat(single.ownerOf("1")).isEqualTo("local");
+        assertThat(single.isLocal("1")).isTrue();
+        boolean ownsSome = false;
+        for (int project = 0; project < PROJECTS && !ownsSome; project++) {
+            ownsSome = unlisted.isLocal(String.valueOf(project));
+        }
+        assertThat(ownsSome).isTrue();
+    }
+}
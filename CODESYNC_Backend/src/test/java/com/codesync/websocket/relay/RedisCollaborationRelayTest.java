@@ -0,0 +1,156 @@
+package com.codesync.websocket.relay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+class RedisCollaborationRelayTest {
+
+    private static final String PROJECT_CHANNEL = "codesync:collaboration:project:";
+    private static final String NODE_CHANNEL = "codesync:collaboration:node:";
+    private static final long TIMEOUT_MS = 5000;
+
+    private FakeRedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCollaborationRelay nodeA;
+    private RedisCollaborationRelay nodeB;
+    private final BlockingQueue<RelayMessage> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<RelayMessage> receivedByB = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeRedisServer();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", server.getPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        nodeA = new RedisCollaborationRelay(connectionFactory);
+        nodeB = new RedisCollaborationRelay(connectionFactory);
+        nodeA.connect("node-a", receivedByA::add);
+        nodeB.connect("node-b", receivedByB::add);
+        assertThat(server.awaitSubscribers(NODE_CHANNEL + "node-a", 1, TIMEOUT_MS)).isTrue();
+        assertThat(server.awaitSubscribers(NODE_CHANNEL + "node-b", 1, TIMEOUT_MS)).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    @Test
+    void broadcastReachesOtherSubscribedNodesButNotItsOrigin() throws Exception {
+        nodeA.subscribe("node-a", "42");
+        nodeB.subscribe("node-b", "42");
+        assertThat(server.awaitSubscribers(PROJECT_CHANNEL + "42", 2, TIMEOUT_MS)).isTrue();
+        byte[] binary = { 1, 2, 3, (byte) 0xff };
+
+        nodeA.publish(new RelayMessage(RelayMessage.Kind.BROADCAST, "node-a", "42", "session-1", null,
+                "code_change", "{\"type\":\"code_change\"}", binary));
+
+        RelayMessage received = receivedByB.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(received).isNotNull();
+        assertThat(received.kind()).isEqualTo(RelayMessage.Kind.BROADCAST);
+        assertThat(received.originNode()).isEqualTo("node-a");
+        assertThat(received.projectId()).isEqualTo("42");
+        assertThat(received.sessionId()).isEqualTo("session-1");
+        assertThat(received.type()).isEqualTo("code_change");
+        assertThat(received.text()).isEqualTo("{\"type\":\"code_change\"}");
+        assertThat(received.binary()).isEqualTo(binary);
+        // Pub/sub echoes the broadcast to its publisher, which must ignore it
+        assertThat(receivedByA.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void broadcastIsNotReceivedAfterUnsubscribing() throws Exception {
+        nodeB.subscribe("node-b", "42");
+        assertThat(server.awaitSubscribers(PROJECT_CHANNEL + "42", 1, TIMEOUT_MS)).isTrue();
+        nodeB.unsubscribe("node-b", "42");
+        assertThat(server.awaitSubscribers(PROJECT_CHANNEL + "42", 0, TIMEOUT_MS)).isTrue();
+
+        nodeA.publish(new RelayMessage(RelayMessage.Kind.BROADCAST, "node-a", "42", null, null,
+                "chat_message", "{}", null));
+
+        assertThat(receivedByB.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void directMessageReachesOnlyTheTargetNode() throws Exception {
+        nodeA.send("node-b", new RelayMessage(RelayMessage.Kind.DIRECT, "node-a", "42", "session-2", null,
+                "code_change_ack", "{\"revision\":3}", null));
+
+        RelayMessage received = receivedByB.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(received).isNotNull();
+        assertThat(received.kind()).isEqualTo(RelayMessage.Kind.DIRECT);
+        assertThat(received.sessionId()).isEqualTo("session-2");
+        assertThat(received.text()).isEqualTo("{\"revision\":3}");
+        assertThat(received.binary()).isNull();
+        assertThat(receivedByA.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void forwardedEditIsAnsweredWithDirectReply() throws Exception {
+        // node-b forwards an edit to the owner, which acknowledges it to the sending session
+        nodeB.send("node-a", new RelayMessage(RelayMessage.Kind.FORWARD, "node-b", "42", "session-3", "7",
+                "code_change", "{\"type\":\"code_change\",\"revision\":0}", null));
+
+        RelayMessage forwarded = receivedByA.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(forwarded).isNotNull();
+        assertThat(forwarded.kind()).isEqualTo(RelayMessage.Kind.FORWARD);
+        assertThat(forwarded.userId()).isEqualTo("7");
+
+        nodeA.send(forwarded.originNode(), new RelayMessage(RelayMessage.Kind.DIRECT, "node-a", "42",
+                forwarded.sessionId(), null, "code_change_ack", "{\"revision\":1}", null));
+
+        RelayMessage reply = receivedByB.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(reply).isNotNull();
+        assertThat(reply.kind()).isEqualTo(RelayMessage.Kind.DIRECT);
+        assertThat(reply.sessionId()).isEqualTo("session-3");
+        assertThat(reply.text()).isEqualTo("{\"revision\":1}");
+    }
+
+    @Test
+    void burstOfMessagesArrivesInPublishOrder() throws Exception {
+        nodeB.subscribe("node-b", "42");
+        assertThat(server.awaitSubscribers(PROJECT_CHANNEL + "42", 1, TIMEOUT_MS)).isTrue();
+        int burst = 500;
+
+        for (int revision = 1; revision <= burst; revision++) {
+            // Acks sent to the node must stay in order with the project's broadcasts
+            RelayMessage message = revision % 5 == 0
+                    ? new RelayMessage(RelayMessage.Kind.DIRECT, "node-a", "42", "session-1", null,
+                            "code_change_ack", String.valueOf(revision), null)
+                    : new RelayMessage(RelayMessage.Kind.BROADCAST, "node-a", "42", null, null,
+                            "code_change", String.valueOf(revision), null);
+            if (message.kind() == RelayMessage.Kind.DIRECT) {
+                nodeA.send("node-b", message);
+            } else {
+                nodeA.publish(message);
+            }
+        }
+
+        List<String> received = new ArrayList<>();
+        for (int i = 0; i < burst; i++) {
+            RelayMessage message = receivedByB.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertThat(message).isNotNull();
+            received.add(message.text());
+        }
+        List<String> expected = new ArrayList<>();
+        for (int revision = 1; revision <= burst; revision++) {
+            expected.add(String.valueOf(revision));
+        }
+        assertThat(received).containsExactlyElementsOf(expected);
+    }
+}
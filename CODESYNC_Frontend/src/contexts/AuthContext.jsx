@@ -52,6 +52,7 @@ export const AuthProvider = ({ children }) => {
         console.error('Token validation failed:', error);
         // Clear invalid token
         localStorage.removeItem('token');
+        localStorage.removeItem('refreshToken');
         localStorage.removeItem('user');
         setToken(null);
         setUser(null);
@@ -74,13 +75,14 @@ export const AuthProvider = ({ children }) => {
       
       if (response.success && response.data) {
         const jwtResponseData = response.data;
-        const { token: newToken, id, username, email, fullName, roles } = jwtResponseData;
+        const { token: newToken, refreshToken, id, username, email, fullName, roles } = jwtResponseData;
         
         // Create user object from JWT response
         const userData = { id, username, email, fullName, roles: roles || ['WRITE'] };
         
         // Store in localStorage
         localStorage.setItem('token', newToken);
+        localStorage.setItem('refreshToken', refreshToken);
         localStorage.setItem('user', JSON.stringify(userData));
         
         // Update state
@@ -112,13 +114,14 @@ export const AuthProvider = ({ children }) => {
       
       if (response.success && response.data) {
         const jwtResponseData = response.data;
-        const { token: newToken, id, username, email, fullName, roles } = jwtResponseData;
+        const { token: newToken, refreshToken, id, username, email, fullName, roles } = jwtResponseData;
         
         // Create user object from JWT response
         const newUser = { id, username, email, fullName, roles: roles || ['WRITE'] };
         
         // Store in localStorage
         localStorage.setItem('token', newToken);
+        localStorage.setItem('refreshToken', refreshToken);
         localStorage.setItem('user', JSON.stringify(newUser));
         
         // Update state
@@ -149,6 +152,7 @@ export const AuthProvider = ({ children }) => {
     } finally {
       // Clear local storage and state
       localStorage.removeItem('token');
+      localStorage.removeItem('refreshToken');
       localStorage.removeItem('user');
       setToken(null);
       setUser(null);
@@ -163,6 +167,7 @@ export const AuthProvider = ({ children }) => {
 
   const clearAuth = () => {
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('user');
     setToken(null);
     setUser(null);
@@ -4,6 +4,28 @@ import { useAuth } from './AuthContext';
 
 const ProjectContext = createContext();
 
+// The single range that turns before into after, found by trimming the common prefix and suffix
+const diffEdit = (before, after) => {
+  let start = 0;
+  while (start < before.length && start < after.length && before[start] === after[start]) {
+    start++;
+  }
+  let end = 0;
+  while (end < before.length - start && end < after.length - start
+      && before[before.length - 1 - end] === after[after.length - 1 - end]) {
+    end++;
+  }
+  return { start, end: before.length - end, text: after.slice(start, after.length - end) };
+};
+
+// A 409 carries the version the file is at now and, when the server could build one, a merge candidate
+const saveFailure = (error, fallback) => ({
+  success: false,
+  error: error.message || fallback,
+  status: error.status,
+  conflict: error.status === 409 ? error.data?.data : undefined
+});
+
 export const useProject = () => {
   const context = useContext(ProjectContext);
   if (!context) {
@@ -241,7 +263,31 @@ export const ProjectProvider = ({ children }) => {
       }
     } catch (error) {
       console.error('Error updating file:', error);
-      return { success: false, error: error.message || 'Failed to update file' };
+      return saveFailure(error, 'Failed to update file');
+    }
+  };
+
+  // Save only what changed since baseContent, which the file had at baseVersion
+  const patchFile = async (fileId, baseVersion, baseContent, content) => {
+    try {
+      const response = await fileAPI.patchFile(fileId, baseVersion, [diffEdit(baseContent, content)]);
+
+      if (response.success) {
+        const { version, updatedAt } = response.data;
+        const patched = file => file.id === fileId ? { ...file, content, version, updatedAt } : file;
+
+        setProjectFiles(prev => prev.map(patched));
+        if (currentFile && currentFile.id === fileId) {
+          setCurrentFile(patched(currentFile));
+        }
+
+        return { success: true, data: response.data };
+      } else {
+        return { success: false, error: response.message };
+      }
+    } catch (error) {
+      console.error('Error patching file:', error);
+      return saveFailure(error, 'Failed to save file');
     }
   };
 
@@ -302,6 +348,7 @@ export const ProjectProvider = ({ children }) => {
     deleteProject,
     createFile,
     updateFile,
+    patchFile,
     deleteFile,
     switchProject,
     switchFile,
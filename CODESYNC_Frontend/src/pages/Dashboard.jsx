@@ -94,6 +94,7 @@ const Dashboard = () => {
     createProject: createProjectAPI,
     createFile,
     updateFile,
+    patchFile,
     deleteFile
   } = useProject();
 
@@ -134,6 +135,8 @@ const Dashboard = () => {
   });
   const [isSaving, setIsSaving] = useState(false);
   const [saveError, setSaveError] = useState('');
+  // Files whose last save hit a newer version; auto-save leaves them alone until the user saves after review
+  const [conflictedFiles, setConflictedFiles] = useState(new Set());
   
   // File and project state - declare these before useEffects that use them
   const [expandedFolders, setExpandedFolders] = useState(new Set(['src', 'src/components', 'src/utils', 'src/contexts']));
@@ -662,21 +665,21 @@ const Dashboard = () => {
       setSidebarUpdateTrigger(prev => prev + 1);
     };
     
+    // The service has already merged the change with local edits it has not sent yet. The server
+    // never echoes a session's own edits, so changes from the same user come from another tab
     const handleCodeChange = (data) => {
-      if (data.userId === user?.id) return; // Don't process own code changes
-      
       console.log('📝 Received real-time code change from user:', data.userId, 'for file:', data.fileId);
       
       // Only update if the changed file is currently open
-      const isFileOpen = openTabs.some(tab => tab.id === data.fileId);
-      if (isFileOpen) {
+      const tab = openTabs.find(t => String(t.id) === String(data.fileId));
+      if (tab) {
         // Update the code in open tabs
-        setOpenTabs(prev => prev.map(tab => 
-          tab.id === data.fileId ? { ...tab, content: data.content } : tab
+        setOpenTabs(prev => prev.map(t => 
+          t.id === tab.id ? { ...t, content: data.content } : t
         ));
         
         // Update the editor content if this is the active file
-        if (activeFile === data.fileId) {
+        if (activeFile === tab.id) {
           console.log('📝 Updating active editor content with real-time changes');
           setCode(data.content);
           
@@ -738,6 +741,23 @@ const Dashboard = () => {
       }
     };
     
+    // The server's text replaced an open file, e.g. after a REST save; local edits are already rebased onto it
+    const handleResync = async (data) => {
+      const tab = openTabs.find(t => String(t.id) === String(data.fileId));
+      if (!tab || tab.content === data.content) return;
+      
+      setOpenTabs(prev => prev.map(t => 
+        t.id === tab.id ? { ...t, content: data.content } : t
+      ));
+      if (activeFile === tab.id) {
+        setCode(data.content);
+        setLastSavedContent(data.content);
+      }
+      if (currentProject?.id) {
+        await loadProjectFiles(currentProject.id);
+      }
+    };
+    
     const handleUserLeft = (data) => {
       // Clean up cursor and file info when user leaves
       setUserCursors(prev => {
@@ -768,6 +788,7 @@ const Dashboard = () => {
     wsService.on('fileSelection', handleFileSelection);
     wsService.on('codeChange', handleCodeChange);
     wsService.on('fileSaved', handleFileSaved);
+    wsService.on('resync', handleResync);
     wsService.on('userLeft', handleUserLeft);
     wsService.on('userJoined', handleUserJoined);
     
@@ -776,10 +797,21 @@ const Dashboard = () => {
       wsService.off('fileSelection', handleFileSelection);
       wsService.off('codeChange', handleCodeChange);
       wsService.off('fileSaved', handleFileSaved);
+      wsService.off('resync', handleResync);
       wsService.off('userLeft', handleUserLeft);
       wsService.off('userJoined', handleUserJoined);
     };
-  }, [wsService, user, openTabs, currentProject, activeFile, files, loadProjectFiles]);
+  }, [wsService, user, openTabs, currentProject, activeFile, loadProjectFiles]);
+  
+  // Open tabs are kept in sync through operations, closed ones are no longer tracked
+  useEffect(() => {
+    if (!wsService) return;
+    const open = new Set(openTabs.map(tab => String(tab.id)));
+    openTabs.forEach(tab => wsService.openDocument(tab.id, tab.content || ''));
+    [...wsService.documents.keys()]
+      .filter(fileId => !open.has(fileId))
+      .forEach(fileId => wsService.closeDocument(fileId));
+  }, [wsService, openTabs]);
   
   // Update cursor decorations when cursors change - be more aggressive about updates
   useEffect(() => {
@@ -1088,6 +1120,57 @@ const Dashboard = () => {
     navigate('/login');
   };
 
+  const markConflicted = (fileId, conflicted) => {
+    setConflictedFiles(prev => {
+      if (prev.has(fileId) === conflicted) return prev;
+      const next = new Set(prev);
+      if (conflicted) {
+        next.add(fileId);
+      } else {
+        next.delete(fileId);
+      }
+      return next;
+    });
+  };
+
+  // Save a file as a patch against the version it was loaded at, so a save never
+  // overwrites someone else's newer one. On a conflict the server's merge candidate,
+  // or the user's own text if there is none, is left in the tab to review.
+  const saveFileContent = useCallback(async (fileId, content) => {
+    // Text the live document already holds is written back by the server on its own
+    if (wsService?.isSettled(fileId, content)) {
+      markConflicted(fileId, false);
+      return { success: true };
+    }
+    const base = files.find(f => f.id === fileId);
+    const result = base?.version
+      ? await patchFile(fileId, base.version, base.content || '', content)
+      : await updateFile(fileId, { content });
+
+    if (result.status === 409) {
+      const merged = result.conflict?.mergeCandidate;
+      const review = merged != null ? merged : content;
+
+      // The next save is based on what the server has now
+      if (currentProject?.id) {
+        await loadProjectFiles(currentProject.id);
+      }
+      setOpenTabs(prev => prev.map(tab =>
+        tab.id === fileId ? { ...tab, content: review } : tab
+      ));
+      if (activeFile === fileId) {
+        setCode(review);
+      }
+      markConflicted(fileId, true);
+      setSaveError(merged != null && result.conflict.mergeConflicts === 0
+        ? 'The file was changed by someone else. Your edits were merged into it, review them and save again.'
+        : 'The file was changed by someone else. Resolve the differences and save again.');
+    } else if (result.success) {
+      markConflicted(fileId, false);
+    }
+    return result;
+  }, [files, patchFile, updateFile, currentProject, loadProjectFiles, activeFile, wsService]);
+
   const handleSave = async () => {
     if (!activeFile || !currentProject) return;
     
@@ -1095,9 +1178,7 @@ const Dashboard = () => {
     setSaveError('');
     
     try {
-      const result = await updateFile(activeFile, {
-        content: code
-      });
+      const result = await saveFileContent(activeFile, code);
       
       if (result && result.success) {
         console.log('File saved successfully');
@@ -1134,7 +1215,7 @@ const Dashboard = () => {
         setShowSaveToast(true);
         setTimeout(() => setShowSaveToast(false), 2000);
         
-      } else {
+      } else if (result?.status !== 409) {
         setSaveError(result?.error || 'Failed to save file');
       }
     } catch (error) {
@@ -1154,32 +1235,22 @@ const Dashboard = () => {
       ));
     }
     
-    // Send real-time code changes to other users (debounced)
+    // Sent as an operation; edits made while one is unacknowledged go out together with the next
     if (sendCodeChange && activeFile) {
-      // Clear existing timeout
-      if (window.codeChangeTimeout) {
-        clearTimeout(window.codeChangeTimeout);
-      }
-      
-      // Set new timeout to debounce rapid changes
-      window.codeChangeTimeout = setTimeout(() => {
-        sendCodeChange({
-          fileId: activeFile,
-          content: value || '',
-          cursor: editorRef.current?.getPosition()
-        });
-      }, 500); // Send after 500ms of inactivity
+      sendCodeChange({
+        fileId: activeFile,
+        content: value || ''
+      });
     }
   };
 
   // Auto-save function with proper unsaved changes tracking
-  const handleAutoSave = useCallback(async () => {
+  const handleAutoSave = useCallback(async (explicit = false) => {
     if (!activeFile || !currentProject) return;
+    if (!explicit && conflictedFiles.has(activeFile)) return;
     
     try {
-      const result = await updateFile(activeFile, {
-        content: code
-      });
+      const result = await saveFileContent(activeFile, code);
       
       if (result && result.success) {
         console.log('File auto-saved successfully');
@@ -1210,7 +1281,7 @@ const Dashboard = () => {
     } catch (error) {
       console.error('Auto-save failed:', error);
     }
-  }, [activeFile, currentProject, code, updateFile, wsService, openTabs]);
+  }, [activeFile, currentProject, code, saveFileContent, conflictedFiles, wsService, openTabs]);
 
   // Check for unsaved changes
   const hasUnsavedChanges = useCallback((fileId) => {
@@ -1223,7 +1294,7 @@ const Dashboard = () => {
   // Manual save with keyboard shortcut
   const handleManualSave = useCallback(async () => {
     if (activeFile && hasUnsavedChanges(activeFile)) {
-      await handleAutoSave();
+      await handleAutoSave(true);
     }
   }, [activeFile, hasUnsavedChanges, handleAutoSave]);
 
@@ -1398,7 +1469,10 @@ const Dashboard = () => {
         // Save the file
         try {
           const tab = openTabs.find(t => t.id === fileId);
-          await updateFile(fileId, { content: tab.content });
+          const result = await saveFileContent(fileId, tab.content);
+          if (!result.success) {
+            return; // Keep the tab open to review a conflict or retry
+          }
           console.log('File saved before closing');
         } catch (error) {
           console.error('Failed to save file before closing:', error);
@@ -26,6 +26,29 @@ apiClient.interceptors.request.use(
   }
 );
 
+// Access tokens are short-lived: on a 401 exchange the refresh token for a new
+// pair once and replay the request. Concurrent failures share one refresh.
+let refreshPromise = null;
+
+export const refreshTokens = () => {
+  if (!refreshPromise) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshPromise = (refreshToken
+      ? axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken })
+      : Promise.reject(new Error('No refresh token')))
+      .then((response) => {
+        const { token, refreshToken: nextRefreshToken } = response.data.data;
+        localStorage.setItem('token', token);
+        localStorage.setItem('refreshToken', nextRefreshToken);
+        return token;
+      })
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+};
+
 // Response interceptor for error handling
 apiClient.interceptors.response.use(
   (response) => {
@@ -33,10 +56,24 @@ apiClient.interceptors.response.use(
     // We need to return this format to the frontend
     return response.data;
   },
-  (error) => {
+  async (error) => {
+    const originalRequest = error.config;
+    if (error.response?.status === 401 && originalRequest && !originalRequest._retried
+        && !originalRequest.url?.startsWith('/auth/')) {
+      originalRequest._retried = true;
+      try {
+        const token = await refreshTokens();
+        originalRequest.headers.Authorization = `Bearer ${token}`;
+        return apiClient(originalRequest);
+      } catch (refreshError) {
+        // Fall through to the logout below
+      }
+    }
+
     if (error.response?.status === 401) {
       // Token expired or invalid
       localStorage.removeItem('token');
+      localStorage.removeItem('refreshToken');
       localStorage.removeItem('user');
       window.location.href = '/login';
     }
@@ -76,7 +113,9 @@ export const authAPI = {
   },
 
   logout: async () => {
-    const response = await apiClient.post('/auth/logout');
+    const response = await apiClient.post('/auth/logout', {
+      refreshToken: localStorage.getItem('refreshToken')
+    });
     return response;
   },
 
@@ -157,10 +196,21 @@ export const fileAPI = {
     const requestData = {
       content: updateData.content || updateData
     };
+    // With a baseVersion the save is rejected with 409 and a merge candidate if the file changed since
+    if (updateData.baseVersion) {
+      requestData.baseVersion = updateData.baseVersion;
+    }
     const response = await apiClient.put(`/files/${fileId}`, requestData);
     return response;
   },
 
+  // Send only the changed ranges; edits are { start, end, text } offsets into the
+  // content identified by baseVersion. A 409 means the file changed since then.
+  patchFile: async (fileId, baseVersion, edits) => {
+    const response = await apiClient.patch(`/files/${fileId}`, { baseVersion, edits });
+    return response;
+  },
+
   deleteFile: async (fileId) => {
     const response = await apiClient.delete(`/files/${fileId}`);
     return response;
@@ -0,0 +1,165 @@
+// Client side of the server's TextOperation: a delta over a whole document as
+// retain (positive number), delete (negative number) and insert (string) components.
+
+const isRetain = (op) => typeof op === 'number' && op > 0;
+const isDelete = (op) => typeof op === 'number' && op < 0;
+const isInsert = (op) => typeof op === 'string';
+
+export class TextOperation {
+  constructor() {
+    this.ops = [];
+    this.baseLength = 0;
+    this.targetLength = 0;
+  }
+
+  retain(n) {
+    if (n <= 0) return this;
+    this.baseLength += n;
+    this.targetLength += n;
+    const last = this.ops.length - 1;
+    if (last >= 0 && isRetain(this.ops[last])) {
+      this.ops[last] += n;
+    } else {
+      this.ops.push(n);
+    }
+    return this;
+  }
+
+  insert(text) {
+    if (!text) return this;
+    this.targetLength += text.length;
+    const last = this.ops.length - 1;
+    if (last >= 0 && isInsert(this.ops[last])) {
+      this.ops[last] += text;
+    } else if (last >= 0 && isDelete(this.ops[last])) {
+      // Inserts go in front of deletes, the same canonical form the server uses
+      if (last > 0 && isInsert(this.ops[last - 1])) {
+        this.ops[last - 1] += text;
+      } else {
+        this.ops.splice(last, 0, text);
+      }
+    } else {
+      this.ops.push(text);
+    }
+    return this;
+  }
+
+  delete(n) {
+    if (n <= 0) return this;
+    this.baseLength += n;
+    const last = this.ops.length - 1;
+    if (last >= 0 && isDelete(this.ops[last])) {
+      this.ops[last] -= n;
+    } else {
+      this.ops.push(-n);
+    }
+    return this;
+  }
+
+  isNoop() {
+    return this.ops.length === 0 || (this.ops.length === 1 && isRetain(this.ops[0]));
+  }
+
+  apply(text) {
+    if (text.length !== this.baseLength) {
+      throw new Error(`Operation base length ${this.baseLength} does not match document length ${text.length}`);
+    }
+    const parts = [];
+    let index = 0;
+    for (const op of this.ops) {
+      if (isRetain(op)) {
+        parts.push(text.slice(index, index + op));
+        index += op;
+      } else if (isInsert(op)) {
+        parts.push(op);
+      } else {
+        index -= op;
+      }
+    }
+    return parts.join('');
+  }
+
+  toJSON() {
+    return this.ops;
+  }
+
+  static fromJSON(components) {
+    const operation = new TextOperation();
+    for (const component of components) {
+      if (isInsert(component)) {
+        operation.insert(component);
+      } else if (isRetain(component)) {
+        operation.retain(component);
+      } else if (isDelete(component)) {
+        operation.delete(-component);
+      } else {
+        throw new Error(`Invalid operation component: ${component}`);
+      }
+    }
+    return operation;
+  }
+
+  // The single replaced range between two texts, found by trimming their common prefix and suffix
+  static diff(from, to) {
+    let prefix = 0;
+    const max = Math.min(from.length, to.length);
+    while (prefix < max && from.charCodeAt(prefix) === to.charCodeAt(prefix)) {
+      prefix++;
+    }
+    let suffix = 0;
+    while (suffix < max - prefix
+        && from.charCodeAt(from.length - 1 - suffix) === to.charCodeAt(to.length - 1 - suffix)) {
+      suffix++;
+    }
+    return new TextOperation()
+      .retain(prefix)
+      .delete(from.length - prefix - suffix)
+      .insert(to.slice(prefix, to.length - suffix))
+      .retain(suffix);
+  }
+
+  // Same contract as the server: returns [a', b'] and inserts in a win position ties
+  static transform(a, b) {
+    if (a.baseLength !== b.baseLength) {
+      throw new Error('Both operations must have the same base length');
+    }
+    const aPrime = new TextOperation();
+    const bPrime = new TextOperation();
+    let i = 0;
+    let j = 0;
+    let opA = a.ops[i++];
+    let opB = b.ops[j++];
+
+    while (opA !== undefined || opB !== undefined) {
+      if (isInsert(opA)) {
+        aPrime.insert(opA);
+        bPrime.retain(opA.length);
+        opA = a.ops[i++];
+        continue;
+      }
+      if (isInsert(opB)) {
+        aPrime.retain(opB.length);
+        bPrime.insert(opB);
+        opB = b.ops[j++];
+        continue;
+      }
+      if (opA === undefined || opB === undefined) {
+        throw new Error('Operations do not span the same document');
+      }
+
+      const min = Math.min(Math.abs(opA), Math.abs(opB));
+      if (isRetain(opA) && isRetain(opB)) {
+        aPrime.retain(min);
+        bPrime.retain(min);
+      } else if (isDelete(opA) && !isDelete(opB)) {
+        aPrime.delete(min);
+      } else if (isRetain(opA) && isDelete(opB)) {
+        bPrime.delete(min);
+      }
+
+      opA = Math.abs(opA) > min ? (opA > 0 ? opA - min : opA + min) : a.ops[i++];
+      opB = Math.abs(opB) > min ? (opB > 0 ? opB - min : opB + min) : b.ops[j++];
+    }
+    return [aPrime, bPrime];
+  }
+}
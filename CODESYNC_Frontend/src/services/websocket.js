@@ -1,4 +1,6 @@
 import { useState, useEffect, useCallback, useRef } from 'react';
+import { refreshTokens } from './api';
+import { TextOperation } from './textOperation';
 
 class WebSocketService {
   constructor() {
@@ -8,8 +10,16 @@ class WebSocketService {
     this.userName = null;
     this.isConnected = false;
     this.reconnectAttempts = 0;
-    this.maxReconnectAttempts = 5;
+    this.maxReconnectAttempts = 10;
     this.reconnectDelay = 1000;
+    this.maxReconnectDelay = 30000;
+    // Lets a dropped connection resume and receive only the events it missed
+    this.resumeToken = null;
+    this.lastSeq = 0;
+    // Open files synced by operations: fileId -> { revision, confirmed, sent, outstanding, text }.
+    // confirmed is the server's text at revision, sent adds the unacknowledged operation and text
+    // adds the local edits not sent yet.
+    this.documents = new Map();
     
     // Event listeners
     this.listeners = {
@@ -19,13 +29,15 @@ class WebSocketService {
       userJoined: [],
       userLeft: [],
       usersList: [],
+      sessionResumed: [],
       codeChange: [],
       cursorPosition: [],
       fileSelection: [],
       userTyping: [],
       chatMessage: [],
       error: [],
-      fileSaved: []
+      fileSaved: [],
+      resync: []
     };
   }
 
@@ -35,11 +47,20 @@ class WebSocketService {
       this.disconnect();
     }
 
+    if (projectId !== this.projectId || userId !== this.userId) {
+      this.resumeToken = null;
+      this.lastSeq = 0;
+    }
     this.projectId = projectId;
     this.userId = userId;
     this.userName = userName;
     
-    const wsUrl = `ws://localhost:8080/ws/collaboration/${projectId}?userId=${userId}&userName=${encodeURIComponent(userName)}`;
+    // The handshake is authenticated with the JWT; browsers cannot set headers on it
+    const token = localStorage.getItem('token');
+    let wsUrl = `ws://localhost:8080/ws/collaboration/${projectId}?token=${encodeURIComponent(token || '')}`;
+    if (this.resumeToken) {
+      wsUrl += `&resumeToken=${encodeURIComponent(this.resumeToken)}&lastSeq=${this.lastSeq}`;
+    }
     
     try {
       this.ws = new WebSocket(wsUrl);
@@ -52,7 +73,9 @@ class WebSocketService {
 
   // Set up WebSocket event listeners
   setupEventListeners() {
+    let opened = false;
     this.ws.onopen = () => {
+      opened = true;
       console.log('WebSocket connected to project:', this.projectId);
       console.log('WebSocket connection details:', {
         url: this.ws.url,
@@ -61,6 +84,8 @@ class WebSocketService {
       });
       this.isConnected = true;
       this.reconnectAttempts = 0;
+      // Acks may have been lost with the old connection, so every open file starts over from the server
+      this.documents.forEach((doc, fileId) => this.requestSync(fileId, doc));
       this.emit('connect', { projectId: this.projectId, userId: this.userId });
     };
 
@@ -71,11 +96,24 @@ class WebSocketService {
       
       // Attempt to reconnect if not manually closed
       if (event.code !== 1000 && this.reconnectAttempts < this.maxReconnectAttempts) {
-        setTimeout(() => {
+        // Exponential backoff with full jitter, so clients dropped together do not return together
+        const ceiling = Math.min(this.maxReconnectDelay, this.reconnectDelay * 2 ** this.reconnectAttempts);
+        const delay = Math.random() * ceiling;
+        setTimeout(async () => {
           this.reconnectAttempts++;
+          // A handshake refused before it opened is most likely an expired access token
+          if (!opened) {
+            try {
+              await refreshTokens();
+            } catch (error) {
+              console.error('Could not refresh the session before reconnecting:', error);
+              this.emit('error', { message: 'Session expired, please log in again' });
+              return;
+            }
+          }
           console.log(`Reconnecting... Attempt ${this.reconnectAttempts}`);
           this.connect(this.projectId, this.userId, this.userName);
-        }, this.reconnectDelay * this.reconnectAttempts);
+        }, delay);
       }
     };
 
@@ -97,17 +135,24 @@ class WebSocketService {
         console.error('Raw message data:', event.data);
       }
     };
-
-    // Handle code changes
-    this.socket.on('codeChange', (data) => {
-      console.log('📥 Received code change:', { userId: data.userId, fileId: data.fileId, contentLength: data.content?.length });
-      this.emit('codeChange', data);
-    });
   }
 
   // Handle incoming messages
   handleMessage(message) {
     const { type } = message;
+
+    if (type === 'users_list') {
+      // A snapshot sets the baseline for the events that follow
+      this.lastSeq = message.seq || 0;
+      this.resumeToken = message.resumeToken || null;
+    } else if (type === 'session_resumed') {
+      this.resumeToken = message.resumeToken;
+    } else if (typeof message.seq === 'number') {
+      if (message.seq <= this.lastSeq) {
+        return;
+      }
+      this.lastSeq = message.seq;
+    }
     
     switch (type) {
       case 'user_joined':
@@ -119,8 +164,14 @@ class WebSocketService {
       case 'users_list':
         this.emit('usersList', message);
         break;
+      case 'session_resumed':
+        this.emit('sessionResumed', message);
+        break;
       case 'code_change':
-        this.emit('codeChange', message);
+        this.handleCodeChange(message);
+        break;
+      case 'code_change_ack':
+        this.handleCodeChangeAck(message);
         break;
       case 'cursor_position':
         this.emit('cursorPosition', message);
@@ -131,31 +182,163 @@ class WebSocketService {
       case 'user_typing':
         this.emit('userTyping', message);
         break;
+      case 'presence_update':
+        this.handlePresenceUpdate(message);
+        break;
       case 'chat_message':
         this.emit('chatMessage', message);
         break;
       case 'file_saved':
         this.emit('fileSaved', message);
         break;
+      case 'permission_denied':
+        this.emit('permissionDenied', message);
+        break;
+      case 'resync_required':
+        this.handleResync(message);
+        break;
       default:
         this.emit('message', message);
     }
   }
 
-  // Send code changes
+  // Unpack a batched presence update into the per-user cursor and typing events
+  handlePresenceUpdate(message) {
+    (message.users || []).forEach(entry => {
+      if (String(entry.userId) === String(this.userId)) return;
+      if (entry.line !== undefined) {
+        this.emit('cursorPosition', { type: 'cursor_position', ...entry });
+      }
+      if (entry.isTyping !== undefined) {
+        this.emit('userTyping', { type: 'user_typing', ...entry });
+      }
+    });
+  }
+
+  // Start syncing an open file; content is what the editor shows for it now
+  openDocument(fileId, content) {
+    const key = String(fileId);
+    if (this.documents.has(key)) return;
+    const doc = { revision: null, confirmed: content, sent: content, outstanding: null, text: content };
+    this.documents.set(key, doc);
+    this.requestSync(key, doc);
+  }
+
+  closeDocument(fileId) {
+    this.documents.delete(String(fileId));
+  }
+
+  // Whether the server already has this text for the file, so there is nothing left to save
+  isSettled(fileId, content) {
+    const doc = this.documents.get(String(fileId));
+    return !!doc && this.isConnected && doc.revision !== null && !doc.outstanding && doc.sent === content;
+  }
+
+  // Send the local edit as an operation; only one is in flight per file, later edits wait for its ack
   sendCodeChange(data) {
-    if (this.isConnected && this.socket) {
-      console.log('📤 Sending code change:', { fileId: data.fileId, contentLength: data.content?.length || 0 });
-      this.socket.emit('codeChange', {
-        userId: this.userId,
-        userName: this.userName,
-        projectId: this.projectId,
-        fileId: data.fileId,
-        content: data.content,
-        cursor: data.cursor,
-        timestamp: Date.now()
-      });
+    const key = String(data.fileId);
+    const doc = this.documents.get(key);
+    if (!doc) return;
+    doc.text = data.content;
+    this.flushDocument(key, doc);
+  }
+
+  flushDocument(fileId, doc) {
+    if (doc.revision === null || doc.outstanding || !this.isConnected) return;
+    const operation = TextOperation.diff(doc.sent, doc.text);
+    if (operation.isNoop()) return;
+    doc.outstanding = operation;
+    doc.sent = doc.text;
+    this.send({
+      type: 'code_change',
+      fileId,
+      revision: doc.revision,
+      operation: operation.toJSON(),
+      timestamp: Date.now()
+    });
+  }
+
+  // An operation without a base revision asks the server for the file's current text and revision
+  requestSync(fileId, doc) {
+    doc.revision = null;
+    doc.outstanding = null;
+    doc.sent = doc.confirmed;
+    this.send({ type: 'code_change', fileId, operation: [] });
+  }
+
+  handleCodeChange(message) {
+    const key = String(message.fileId);
+    const doc = this.documents.get(key);
+    if (!doc) return;
+    if (message.operation === undefined) {
+      // Full text from a client that does not send operations
+      if (message.content !== undefined) {
+        this.handleResync(message);
+      }
+      return;
+    }
+    if (doc.revision === null || message.revision <= doc.revision) return;
+    if (message.revision !== doc.revision + 1) {
+      this.requestSync(key, doc);
+      return;
+    }
+
+    try {
+      // The server applied this before our outstanding operation, so it wins position ties
+      let remote = TextOperation.fromJSON(message.operation);
+      doc.confirmed = remote.apply(doc.confirmed);
+      if (doc.outstanding) {
+        [remote, doc.outstanding] = TextOperation.transform(remote, doc.outstanding);
+      }
+      const unsent = TextOperation.diff(doc.sent, doc.text);
+      doc.sent = remote.apply(doc.sent);
+      doc.text = TextOperation.transform(remote, unsent)[0].apply(doc.text);
+      doc.revision = message.revision;
+    } catch (error) {
+      console.error('Could not apply remote operation, resyncing file:', message.fileId, error);
+      this.requestSync(key, doc);
+      return;
+    }
+    this.emit('codeChange', { ...message, content: doc.text });
+  }
+
+  handleCodeChangeAck(message) {
+    const doc = this.documents.get(String(message.fileId));
+    if (!doc || !doc.outstanding) return;
+    doc.confirmed = doc.sent;
+    doc.revision = message.revision;
+    doc.outstanding = null;
+    this.flushDocument(String(message.fileId), doc);
+  }
+
+  // The server's text replaces ours; local edits it has not seen are rebased onto it
+  handleResync(message) {
+    const key = String(message.fileId);
+    const doc = this.documents.get(key);
+    if (!doc) {
+      this.emit('resync', message);
+      return;
+    }
+    if (doc.revision !== null && (message.revision < doc.revision
+        || (message.revision === doc.revision && message.content === doc.confirmed))) {
+      // Nothing new, e.g. the reply to an operation that was already rebased
+      return;
+    }
+    const content = message.content ?? '';
+    try {
+      const local = TextOperation.diff(doc.confirmed, doc.text);
+      const server = TextOperation.diff(doc.confirmed, content);
+      doc.text = TextOperation.transform(server, local)[1].apply(content);
+    } catch (error) {
+      console.error('Could not rebase local edits, taking the server text:', message.fileId, error);
+      doc.text = content;
     }
+    doc.confirmed = content;
+    doc.sent = content;
+    doc.outstanding = null;
+    doc.revision = message.revision ?? null;
+    this.emit(message.type === 'code_change' ? 'codeChange' : 'resync', { ...message, content: doc.text });
+    this.flushDocument(key, doc);
   }
 
   // Send cursor position
@@ -233,8 +416,11 @@ class WebSocketService {
     if (this.ws) {
       this.ws.close(1000, 'User disconnected');
       this.ws = null;
+      this.resumeToken = null;
+      this.lastSeq = 0;
       this.isConnected = false;
     }
+    this.documents.clear();
   }
 
   // Event listener management